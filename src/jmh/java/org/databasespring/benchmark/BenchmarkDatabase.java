@@ -0,0 +1,58 @@
+package org.databasespring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.Properties;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.databasespring.database.MybatisConfiguration;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * In-memory H2 database wired through {@link MybatisConfiguration}, using the mapper layout of {@code src/jmh/resources/database/mybatis}.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    public static final long ROWS = 100_000L;
+
+    private final HikariDataSource dataSource;
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private BenchmarkDatabase(HikariDataSource dataSource, SqlSessionFactory sqlSessionFactory) {
+        this.dataSource = dataSource;
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
+    /**
+     * Create a database with {@link #ROWS} rows in {@code benchmark_row}, every call gets its own database.
+     */
+    public static BenchmarkDatabase create(String name) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("driver", "org.h2.Driver");
+        properties.setProperty("url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        properties.setProperty("username", "sa");
+        properties.setProperty("password", "");
+
+        MybatisConfiguration mybatisConfiguration = new MybatisConfiguration(new DefaultResourceLoader());
+        mybatisConfiguration.setProperties(properties);
+        HikariDataSource dataSource = (HikariDataSource) mybatisConfiguration.getDataSource();
+        SqlSessionFactory sqlSessionFactory = mybatisConfiguration.sqlSessionFactoryBean(dataSource).getObject();
+
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            sqlSession.update("benchmark.createTable");
+            sqlSession.insert("benchmark.populate", ROWS);
+        }
+        return new BenchmarkDatabase(dataSource, sqlSessionFactory);
+    }
+
+    public SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.databasespring.benchmark;
+
+public class BenchmarkRow {
+
+    private long id;
+    private String name;
+    private long amount;
+
+    public BenchmarkRow() {
+    }
+
+    public BenchmarkRow(long id, String name, long amount) {
+        this.id = id;
+        this.name = name;
+        this.amount = amount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(long amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,68 @@
+package org.databasespring.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.RowBounds;
+import org.databasespring.framework.database.connection.ReadConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.ReadSession;
+import org.databasespring.framework.database.session.page.KeysetPage;
+import org.databasespring.framework.database.session.page.KeysetToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A page deep into the table by {@link RowBounds} offset compared to keyset pagination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"0", "10000", "90000"})
+    private int offset;
+
+    private BenchmarkDatabase database;
+    private ReadSession readSession;
+    private String pageToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("pagination");
+        readSession = new ReadConnection(database.getSqlSessionFactory()).session();
+        pageToken = offset > 0 ? KeysetToken.encode((long) offset) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> offsetPage() throws DatabaseException {
+        return readSession.selectList(BenchmarkRow.class, "benchmark.selectAll", null, new RowBounds(offset, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public KeysetPage<BenchmarkRow> keysetPage() throws DatabaseException {
+        return readSession.selectPage(BenchmarkRow.class, "benchmark.selectPage", null, "id", pageToken, PAGE_SIZE);
+    }
+
+}
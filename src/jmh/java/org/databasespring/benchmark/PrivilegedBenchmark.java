@@ -0,0 +1,55 @@
+package org.databasespring.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.databasespring.framework.database.connection.ReadConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.ReadSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call overhead of running {@code selectOne} through {@code AccessController.doPrivileged} compared to the direct path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrivilegedBenchmark {
+
+    @Param({"false", "true"})
+    private boolean privileged;
+
+    private BenchmarkDatabase database;
+    private ReadSession readSession;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("privileged");
+        readSession = new ReadConnection(database.getSqlSessionFactory()).privileged(privileged).session();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public BenchmarkRow selectOne() throws DatabaseException {
+        return readSession.selectOne(BenchmarkRow.class, "benchmark.selectById", 42L);
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.databasespring.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.databasespring.framework.database.connection.ReadConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.ReadSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of {@link ReadSession} compared to calling MyBatis directly on a session of the same factory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadSessionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private SqlSessionFactory sqlSessionFactory;
+    private ReadSession readSession;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("read");
+        sqlSessionFactory = database.getSqlSessionFactory();
+        readSession = new ReadConnection(sqlSessionFactory).session();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public BenchmarkRow selectOne() throws DatabaseException {
+        return readSession.selectOne(BenchmarkRow.class, "benchmark.selectById", 42L);
+    }
+
+    @Benchmark
+    public BenchmarkRow selectOneMybatis() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            return sqlSession.selectOne("benchmark.selectById", 42L);
+        }
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> selectList() throws DatabaseException {
+        return readSession.selectList(BenchmarkRow.class, "benchmark.selectFirst", rows);
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> selectListMybatis() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            return sqlSession.selectList("benchmark.selectFirst", rows);
+        }
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> custom() throws DatabaseException {
+        return readSession.custom(sqlSession -> {
+            sqlSession.selectOne("benchmark.selectById", 42L);
+            return sqlSession.selectList("benchmark.selectFirst", rows);
+        });
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.databasespring.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.databasespring.framework.database.connection.WriteConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.WriteSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost per inserted row of single inserts compared to the batched {@code insertAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteSessionBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 100;
+
+    private BenchmarkDatabase database;
+    private WriteSession writeSession;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("write");
+        writeSession = new WriteConnection(database.getSqlSessionFactory()).session();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIds() {
+        nextId = BenchmarkDatabase.ROWS + 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws DatabaseException {
+        writeSession.delete("benchmark.deleteFrom", BenchmarkDatabase.ROWS + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public int insert() throws DatabaseException {
+        int affected = 0;
+        for (BenchmarkRow row : nextRows()) {
+            affected += writeSession.insert("benchmark.insert", row);
+        }
+        return affected;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public int[] insertAll() throws DatabaseException {
+        return writeSession.insertAll("benchmark.insert", nextRows());
+    }
+
+    private List<BenchmarkRow> nextRows() {
+        List<BenchmarkRow> rows = new ArrayList<>(ROWS_PER_INVOCATION);
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            long id = nextId++;
+            rows.add(new BenchmarkRow(id, "row-" + id, id * 10));
+        }
+        return rows;
+    }
+
+}
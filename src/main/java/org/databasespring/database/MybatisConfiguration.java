@@ -3,33 +3,94 @@ package org.databasespring.database;
 import com.zaxxer.hikari.HikariDataSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.databasespring.framework.database.mapper.DatabaseMapper;
+import org.databasespring.framework.database.mapper.DatabaseMapperRegistry;
+import org.databasespring.framework.database.mapper.DatabaseMappers;
+import org.databasespring.framework.database.mapper.IndexedDatabaseMapperRegistry;
+import org.databasespring.framework.database.mapper.MapperValidator;
+import org.databasespring.framework.database.metrics.QueryMetrics;
+import org.databasespring.framework.database.routing.LatencyWeightedLoadBalancer;
+import org.databasespring.framework.database.routing.LeastActiveLoadBalancer;
+import org.databasespring.framework.database.routing.LoadBalancer;
+import org.databasespring.framework.database.routing.Replica;
+import org.databasespring.framework.database.routing.ReplicaRoutingDataSource;
+import org.databasespring.framework.database.routing.RoundRobinLoadBalancer;
+import org.databasespring.framework.database.session.AsyncQueryExecutor;
+import org.databasespring.framework.database.session.interceptor.FetchSizeInterceptor;
+import org.databasespring.framework.database.session.interceptor.StatementReuseInterceptor;
 import org.mybatis.spring.SqlSessionFactoryBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.support.JdbcTransactionManager;
 import org.springframework.transaction.TransactionManager;
 
+/**
+ * Configures the session factories and pools. The read pools created by this configuration are closed with the context, the write pool of
+ * {@link #getDataSource()} belongs to whoever obtained it.
+ */
 @Configuration
-public class MybatisConfiguration implements DataSourceFactory {
+public class MybatisConfiguration implements DataSourceFactory, DisposableBean {
 
     private static final Logger LOG = LogManager.getLogger(MybatisConfiguration.class);
 
+    private static final String DEFAULT_LOAD_BALANCER = "round-robin";
+    private static final long DEFAULT_EJECTION_MILLIS = 30000L;
+    private static final long DEFAULT_REPLICA_CONNECTION_TIMEOUT_MILLIS = 1000L; // A replica that went down is skipped instead of stalling reads
+    private static final long DEFAULT_HEALTH_CHECK_MILLIS = 5000L;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000L; // Already long, waiting any longer only piles up requests
+
+    private static final int DEFAULT_ASYNC_THREADS = 10; // Default maximum pool size of Hikari
+    private static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+
+    private static final String DEFAULT_MAPPER_LOCATIONS = "classpath:database/mybatis/mappers/*.xml";
+
+    private static final String WRITE_POOL = "write";
+    private static final String READ_POOL = "read";
+    private static final String REPLICA_POOL = "replica";
+
     private Properties properties;
 
     private final ResourceLoader resourceLoader;
+    private final ObjectProvider<QueryMetrics> queryMetrics;
+    private final IndexedDatabaseMapperRegistry indexedDatabaseMapperRegistry;
+    private final List<Class<? extends DatabaseMapper>> databaseMappers;
+    private final List<AutoCloseable> readDataSources = new CopyOnWriteArrayList<>();
 
     public MybatisConfiguration(ResourceLoader resourceLoader) {
+        this(resourceLoader, null);
+    }
+
+    @Autowired
+    public MybatisConfiguration(ResourceLoader resourceLoader, @Nullable ObjectProvider<QueryMetrics> queryMetrics) {
         this.resourceLoader = resourceLoader;
+        this.queryMetrics = queryMetrics;
+        ClassLoader classLoader = resourceLoader.getClassLoader() != null ? resourceLoader.getClassLoader()
+            : MybatisConfiguration.class.getClassLoader();
+        this.indexedDatabaseMapperRegistry = new IndexedDatabaseMapperRegistry(classLoader);
+        this.databaseMappers = DatabaseMappers.discover(indexedDatabaseMapperRegistry, classLoader);
     }
 
     @Override
@@ -37,28 +98,145 @@ public class MybatisConfiguration implements DataSourceFactory {
         this.properties = props;
     }
 
+    /**
+     * Pool for {@link org.databasespring.framework.database.connection.WriteConnection}. Pool settings are read from {@code pool.write.<setting>},
+     * falling back to {@code pool.<setting>}:
+     * <ul>
+     *     <li>{@code maximum-pool-size} and {@code minimum-idle}</li>
+     *     <li>{@code connection-timeout-millis} (default 30 seconds), {@code idle-timeout-millis}, {@code max-lifetime-millis} and
+     *     {@code leak-detection-threshold-millis}</li>
+     *     <li>{@code prepare-threshold}, {@code prepared-statement-cache-queries} and {@code prepared-statement-cache-size-mib}, handed to the
+     *     PostgreSQL driver</li>
+     * </ul>
+     * Settings that are not configured keep the defaults of Hikari and the driver.
+     */
     @Override
     public DataSource getDataSource() {
-        HikariDataSource hikariDataSource = new HikariDataSource();
-        hikariDataSource.setDriverClassName(properties.getProperty("driver"));
-        hikariDataSource.setJdbcUrl(properties.getProperty("url"));
-        hikariDataSource.setUsername(properties.getProperty("username"));
-        hikariDataSource.setPassword(properties.getProperty("password"));
-        hikariDataSource.setConnectionTimeout(30000L); // Set default timeout to 30 seconds, this is already long
-        return hikariDataSource;
+        return createDataSource(WRITE_POOL, WRITE_POOL, properties.getProperty("url"), false);
+    }
+
+    /**
+     * Read data source with its own pool on the primary, so slow reads can't take the connections writes need. The pool settings are read from
+     * {@code pool.read.<setting>}, falling back to {@code pool.<setting>}, see {@link #getDataSource()}.
+     *
+     * @return the data source for reads
+     */
+    public ReplicaRoutingDataSource getReadDataSource() {
+        HikariDataSource primary = createDataSource(READ_POOL, READ_POOL, properties.getProperty("url"), true);
+        readDataSources.add(primary);
+        return getReadDataSource(primary);
+    }
+
+    /**
+     * Read data source routing to the replicas listed in the comma separated {@code replicas} property. The replicas use the driver and
+     * credentials of the primary and the read pool settings. {@code replica.balancer} selects the balancing: {@code round-robin} (default),
+     * {@code least-active} or {@code latency-weighted}, {@code replica.ejection-millis} how long a failing replica is left out. The replicas are
+     * probed every {@code replica.health-check-millis} (default 5 seconds) and a read waits at most {@code replica.connection-timeout-millis}
+     * (default 1 second) for a connection of a replica before trying the next one. Without replicas every read goes to the primary. The pools of
+     * the replicas are named {@code replica-<index>-<host>}.
+     *
+     * @param primary the data source of the primary used for reads
+     * @return the data source for reads
+     */
+    public ReplicaRoutingDataSource getReadDataSource(DataSource primary) {
+        List<Replica> replicas = new ArrayList<>();
+        long ejectionMillis = DEFAULT_EJECTION_MILLIS;
+        long healthCheckMillis = DEFAULT_HEALTH_CHECK_MILLIS;
+        LoadBalancer loadBalancer = new RoundRobinLoadBalancer();
+        if (properties != null) {
+            long connectionTimeout = Long.parseLong(properties.getProperty("replica.connection-timeout-millis",
+                String.valueOf(DEFAULT_REPLICA_CONNECTION_TIMEOUT_MILLIS)));
+            for (String url : StringUtils.split(properties.getProperty("replicas", ""), ',')) {
+                // Named by host, the URL can hold credentials and the name shows up in logs and JMX
+                String name = REPLICA_POOL + "-" + replicas.size() + "-" + host(url.trim());
+                HikariDataSource replicaDataSource = createDataSource(READ_POOL, name, url.trim(), true);
+                replicaDataSource.setConnectionTimeout(connectionTimeout);
+                replicaDataSource.setValidationTimeout(Math.min(replicaDataSource.getValidationTimeout(), connectionTimeout));
+                replicas.add(new Replica(name, replicaDataSource));
+            }
+            ejectionMillis = Long.parseLong(properties.getProperty("replica.ejection-millis", String.valueOf(DEFAULT_EJECTION_MILLIS)));
+            healthCheckMillis = Long.parseLong(properties.getProperty("replica.health-check-millis", String.valueOf(DEFAULT_HEALTH_CHECK_MILLIS)));
+            loadBalancer = loadBalancer(properties.getProperty("replica.balancer", DEFAULT_LOAD_BALANCER));
+        }
+        ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, replicas, loadBalancer, ejectionMillis);
+        replicaRoutingDataSource.startHealthChecks(healthCheckMillis);
+        readDataSources.add(replicaRoutingDataSource);
+        return replicaRoutingDataSource;
     }
 
+    /**
+     * Session factory for {@link org.databasespring.framework.database.connection.WriteConnection}. The mappers discovered through
+     * {@link DatabaseMappers#discover(ClassLoader)} are registered after the mapper XML is read. When {@code mapper-locations} is configured its
+     * pattern is resolved, otherwise the mapper XML indexed at compile time is read when it covers every discovered mapper, see
+     * {@link IndexedDatabaseMapperRegistry#getMapperXml(java.util.Collection)}, which avoids scanning the classpath and the jar entries while
+     * starting. Without a covering index the pattern {@code classpath:database/mybatis/mappers/*.xml} is resolved. Discovered mappers whose
+     * namespace has no XML in those locations read it from next to the interface.
+     */
     @Bean
+    @Primary
     public SqlSessionFactoryBean sqlSessionFactoryBean(DataSource dataSource) {
-        SqlSessionFactoryBean sqlSessionFactoryBean = new SqlSessionFactoryBean();
-        sqlSessionFactoryBean.setDataSource(dataSource);
-        sqlSessionFactoryBean.setConfigLocation(resourceLoader.getResource("classpath:database/mybatis/mybatis-config.xml"));
-        try {
-            sqlSessionFactoryBean.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath:database/mybatis/mappers/*.xml"));
-        } catch (IOException e) {
-            LOG.error("Unable to set mapper locations, continuing until better strategy is available. This will mean queries can't be found", e);
+        return createSqlSessionFactoryBean(dataSource);
+    }
+
+    /**
+     * Session factory for {@link org.databasespring.framework.database.connection.ReadConnection}, reading from the replicas when configured.
+     * When the pools are configured through {@link #setProperties(Properties)} reads get a pool separate from the one of the writes.
+     */
+    @Bean
+    public SqlSessionFactoryBean readSqlSessionFactory(DataSource dataSource) {
+        return createSqlSessionFactoryBean(properties != null ? getReadDataSource() : getReadDataSource(dataSource));
+    }
+
+    /**
+     * Executor of the asynchronous session methods. {@code async.threads} defaults to {@code pool.maximum-pool-size}, as more threads than
+     * connections only wait for the pool. {@code async.queue-capacity} limits the waiting operations, when the queue is full callers wait up to
+     * {@code async.max-wait-millis}, defaulting to the connection timeout. With {@code async.virtual-threads} set to {@code true} every operation
+     * runs on its own virtual thread when the JVM has them, at most {@code async.threads} at the same time.
+     */
+    @Bean(destroyMethod = "close")
+    public AsyncQueryExecutor asyncQueryExecutor() {
+        if (properties == null) {
+            return new AsyncQueryExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_QUEUE_CAPACITY, DEFAULT_CONNECTION_TIMEOUT_MILLIS);
         }
-        return sqlSessionFactoryBean;
+        int threads = Integer.parseInt(properties.getProperty("async.threads", properties.getProperty("pool.maximum-pool-size", String.valueOf(DEFAULT_ASYNC_THREADS))));
+        int queueCapacity = Integer.parseInt(properties.getProperty("async.queue-capacity", String.valueOf(DEFAULT_ASYNC_QUEUE_CAPACITY)));
+        long maxWaitMillis = Long.parseLong(properties.getProperty("async.max-wait-millis", properties.getProperty("pool.connection-timeout-millis",
+            String.valueOf(DEFAULT_CONNECTION_TIMEOUT_MILLIS))));
+        if (Boolean.parseBoolean(properties.getProperty("async.virtual-threads"))) {
+            return AsyncQueryExecutor.virtualThreads(threads, maxWaitMillis);
+        }
+        return new AsyncQueryExecutor(threads, queueCapacity, maxWaitMillis);
+    }
+
+    /**
+     * Statement reuse of both session factories, reported to the {@link QueryMetrics} bean when there is exactly one. Custom sessions and
+     * transactions on a {@code REUSE} view of a connection reuse their statements, the driver keeps server side prepared statements per
+     * connection as configured by {@code pool.prepare-threshold} and {@code pool.prepared-statement-cache-queries}.
+     */
+    @Bean
+    public StatementReuseInterceptor statementReuseInterceptor() {
+        return new StatementReuseInterceptor(queryMetrics != null ? queryMetrics.getIfUnique(() -> QueryMetrics.NOOP) : QueryMetrics.NOOP);
+    }
+
+    /**
+     * The discovered mappers, wrapped to run on the write session factory.
+     */
+    @Bean
+    public DatabaseMappers databaseMappers(SqlSessionFactory sqlSessionFactory) {
+        return new DatabaseMappers(sqlSessionFactory, databaseMappers);
+    }
+
+    /**
+     * Validates the mappers of both session factories while the context starts, a mapper error stops the start instead of failing its first
+     * query. See {@link MapperValidator}.
+     */
+    @Bean
+    public MapperValidator mapperValidator(List<SqlSessionFactory> sqlSessionFactories, ObjectProvider<DatabaseMapperRegistry> databaseMapperRegistries) {
+        MapperValidator mapperValidator = new MapperValidator(databaseMapperRegistries.orderedStream().collect(Collectors.toList()));
+        for (SqlSessionFactory sqlSessionFactory : sqlSessionFactories) {
+            mapperValidator.validate(sqlSessionFactory.getConfiguration());
+        }
+        return mapperValidator;
     }
 
     @Bean
@@ -68,4 +246,125 @@ public class MybatisConfiguration implements DataSourceFactory {
         return dataSourceTransactionManager;
     }
 
+    private SqlSessionFactoryBean createSqlSessionFactoryBean(DataSource dataSource) {
+        SqlSessionFactoryBean sqlSessionFactoryBean = new SqlSessionFactoryBean() {
+            @Override
+            protected SqlSessionFactory buildSqlSessionFactory() throws Exception {
+                SqlSessionFactory sqlSessionFactory = super.buildSqlSessionFactory();
+                DatabaseMappers.register(sqlSessionFactory.getConfiguration(), databaseMappers);
+                return sqlSessionFactory;
+            }
+        };
+        sqlSessionFactoryBean.setDataSource(dataSource);
+        sqlSessionFactoryBean.setConfigLocation(resourceLoader.getResource("classpath:database/mybatis/mybatis-config.xml"));
+        sqlSessionFactoryBean.setPlugins(new FetchSizeInterceptor(), statementReuseInterceptor());
+
+        String mapperLocations = properties != null ? properties.getProperty("mapper-locations") : null;
+        List<String> indexedMapperXml = mapperLocations == null ? indexedDatabaseMapperRegistry.getMapperXml(databaseMappers) : null;
+        if (indexedMapperXml != null) {
+            sqlSessionFactoryBean.setMapperLocations(indexedMapperXml.stream().map(resource -> resourceLoader.getResource("classpath:" + resource))
+                .toArray(Resource[]::new));
+            return sqlSessionFactoryBean;
+        }
+        if (mapperLocations == null) {
+            mapperLocations = DEFAULT_MAPPER_LOCATIONS;
+        }
+        try {
+            sqlSessionFactoryBean.setMapperLocations(new PathMatchingResourcePatternResolver(resourceLoader).getResources(mapperLocations));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to find the mapper XML", e);
+        }
+        return sqlSessionFactoryBean;
+    }
+
+    /**
+     * Closes the read data sources, the routing data sources close the pools of their replicas.
+     */
+    @Override
+    public void destroy() {
+        List<AutoCloseable> closing = new ArrayList<>(readDataSources);
+        readDataSources.clear();
+        Collections.reverse(closing);
+        for (AutoCloseable readDataSource : closing) {
+            try {
+                readDataSource.close();
+            } catch (Exception e) {
+                LOG.warn("Unable to close read data source {}", readDataSource, e);
+            }
+        }
+    }
+
+    private HikariDataSource createDataSource(String pool, String name, String url, boolean readOnly) {
+        HikariDataSource hikariDataSource = new HikariDataSource();
+        hikariDataSource.setPoolName(name);
+        hikariDataSource.setDriverClassName(properties.getProperty("driver"));
+        hikariDataSource.setJdbcUrl(url);
+        hikariDataSource.setUsername(properties.getProperty("username"));
+        hikariDataSource.setPassword(properties.getProperty("password"));
+        hikariDataSource.setReadOnly(readOnly);
+        hikariDataSource.setConnectionTimeout(poolSetting(pool, "connection-timeout-millis", DEFAULT_CONNECTION_TIMEOUT_MILLIS));
+
+        String maximumPoolSize = poolSetting(pool, "maximum-pool-size");
+        if (maximumPoolSize != null) {
+            hikariDataSource.setMaximumPoolSize(Integer.parseInt(maximumPoolSize));
+        }
+        String minimumIdle = poolSetting(pool, "minimum-idle");
+        if (minimumIdle != null) {
+            hikariDataSource.setMinimumIdle(Integer.parseInt(minimumIdle));
+        }
+        String idleTimeout = poolSetting(pool, "idle-timeout-millis");
+        if (idleTimeout != null) {
+            hikariDataSource.setIdleTimeout(Long.parseLong(idleTimeout));
+        }
+        String maxLifetime = poolSetting(pool, "max-lifetime-millis");
+        if (maxLifetime != null) {
+            hikariDataSource.setMaxLifetime(Long.parseLong(maxLifetime));
+        }
+        String leakDetectionThreshold = poolSetting(pool, "leak-detection-threshold-millis");
+        if (leakDetectionThreshold != null) {
+            hikariDataSource.setLeakDetectionThreshold(Long.parseLong(leakDetectionThreshold));
+        }
+
+        addDriverProperty(hikariDataSource, pool, "prepare-threshold", "prepareThreshold");
+        addDriverProperty(hikariDataSource, pool, "prepared-statement-cache-queries", "preparedStatementCacheQueries");
+        addDriverProperty(hikariDataSource, pool, "prepared-statement-cache-size-mib", "preparedStatementCacheSizeMiB");
+        return hikariDataSource;
+    }
+
+    private void addDriverProperty(HikariDataSource hikariDataSource, String pool, String setting, String driverProperty) {
+        String value = poolSetting(pool, setting);
+        if (value != null) {
+            hikariDataSource.addDataSourceProperty(driverProperty, value);
+        }
+    }
+
+    private long poolSetting(String pool, String setting, long defaultValue) {
+        String value = poolSetting(pool, setting);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    private String poolSetting(String pool, String setting) {
+        String value = properties.getProperty("pool." + pool + "." + setting);
+        return value != null ? value : properties.getProperty("pool." + setting);
+    }
+
+    private static String host(String url) {
+        String authority = StringUtils.substringAfter(url, "//").split("[/?;]", 2)[0];
+        // Drops user info the URL may carry
+        return authority.substring(authority.lastIndexOf('@') + 1);
+    }
+
+    private static LoadBalancer loadBalancer(String name) {
+        switch (name) {
+            case "round-robin":
+                return new RoundRobinLoadBalancer();
+            case "least-active":
+                return new LeastActiveLoadBalancer();
+            case "latency-weighted":
+                return new LatencyWeightedLoadBalancer();
+            default:
+                throw new IllegalArgumentException("Unknown replica balancer " + name);
+        }
+    }
+
 }
@@ -0,0 +1,34 @@
+package org.databasespring.framework.database.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long and how many results of a statement or namespace are kept by the {@link QueryCache}.
+ */
+public final class CachePolicy {
+
+    private final long timeToLiveNanos;
+    private final long maximumSize;
+
+    /**
+     * @param timeToLive how long a result is kept after it was read
+     * @param unit unit of the time to live
+     * @param maximumSize maximum number of results kept, the least valuable are evicted first
+     */
+    public CachePolicy(long timeToLive, TimeUnit unit, long maximumSize) {
+        if (timeToLive <= 0 || maximumSize <= 0) {
+            throw new IllegalArgumentException("Time to live and maximum size must be positive");
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.maximumSize = maximumSize;
+    }
+
+    public long getTimeToLiveNanos() {
+        return timeToLiveNanos;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+}
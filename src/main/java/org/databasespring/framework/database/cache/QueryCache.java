@@ -0,0 +1,218 @@
+package org.databasespring.framework.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.session.RowBounds;
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Opt-in cache for the results of {@link org.databasespring.framework.database.session.ReadSession} selects. Only statements that have a
+ * {@link CachePolicy}, for the statement itself or its namespace, are cached. Results are keyed by statement, parameter and row bounds, so
+ * parameters must implement {@code equals} and {@code hashCode}. Cached results are shared between callers and must not be changed, lists
+ * are returned unmodifiable.
+ * <p>
+ * Writes through {@link org.databasespring.framework.database.session.WriteSession} invalidate the namespace of the written statement and
+ * the namespaces registered through {@link #invalidateOnWrite(String, String...)}. Writes in other processes are only seen once the time to
+ * live expires.
+ * <p>
+ * A read right after a write could be routed to a replica that did not replay the write yet and cache the old result for the whole time to
+ * live. For {@link #primaryAfterWrite(long, TimeUnit)}, five seconds by default, after an invalidation the results are therefore loaded from
+ * the primary.
+ */
+public class QueryCache {
+
+    private static final Object NULL = new Object();
+    private static final long DEFAULT_PRIMARY_AFTER_WRITE_SECONDS = 5;
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> dependentNamespaces = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private volatile long allInvalidatedAt = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private volatile long primaryAfterWriteNanos = TimeUnit.SECONDS.toNanos(DEFAULT_PRIMARY_AFTER_WRITE_SECONDS);
+
+    /**
+     * Cache the results of a statement, or of every statement in a namespace. A policy for a statement wins over the one of its namespace.
+     *
+     * @param statementOrNamespace statement id or namespace
+     * @param cachePolicy time to live and size of the cached results
+     * @return this cache
+     */
+    public QueryCache cache(@Nonnull String statementOrNamespace, @Nonnull CachePolicy cachePolicy) {
+        Cache<QueryKey, Object> cache = Caffeine.newBuilder()
+            .maximumSize(cachePolicy.getMaximumSize())
+            .expireAfterWrite(cachePolicy.getTimeToLiveNanos(), TimeUnit.NANOSECONDS)
+            .build();
+        regions.put(statementOrNamespace, new Region(statementOrNamespace, cache));
+        return this;
+    }
+
+    /**
+     * Declare that writes in one namespace change the results of statements in other namespaces, for instance when a view or join in a
+     * cached statement reads the written table.
+     *
+     * @param writeNamespace namespace of the insert, update or delete statements
+     * @param cachedNamespaces namespaces of the cached statements to invalidate
+     * @return this cache
+     */
+    public QueryCache invalidateOnWrite(@Nonnull String writeNamespace, @Nonnull String... cachedNamespaces) {
+        dependentNamespaces.computeIfAbsent(writeNamespace, namespace -> ConcurrentHashMap.newKeySet()).addAll(Arrays.asList(cachedNamespaces));
+        return this;
+    }
+
+    /**
+     * Load results from the primary for the given time after their namespace was invalidated, at least the time replicas lag behind. Use
+     * {@code 0} when reads are not routed to replicas.
+     *
+     * @return this cache
+     */
+    public QueryCache primaryAfterWrite(long duration, @Nonnull TimeUnit unit) {
+        primaryAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * @return whether results of the statement are to be loaded from the primary, as its namespace was invalidated within
+     * {@link #primaryAfterWrite(long, TimeUnit)}
+     */
+    public boolean isLoadedFromPrimary(@Nonnull String statement) {
+        if (primaryAfterWriteNanos <= 0 || region(statement) == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Long namespaceInvalidatedAt = invalidatedAt.get(namespace(statement));
+        return now - allInvalidatedAt < primaryAfterWriteNanos || (namespaceInvalidatedAt != null && now - namespaceInvalidatedAt < primaryAfterWriteNanos);
+    }
+
+    /**
+     * @return whether results of the statement are cached
+     */
+    public boolean isCached(@Nonnull String statement) {
+        return region(statement) != null;
+    }
+
+    /**
+     * Return the cached result, or load and cache it. A result loaded while its namespace was invalidated is not kept.
+     *
+     * @param kind kind of select, results of different kinds of selects for the same statement are kept apart
+     * @param resultType type the caller maps the result to
+     * @param statement statement id
+     * @param parameter parameter of the statement
+     * @param rowBounds row bounds of the statement
+     * @param loader reads the result from the database
+     * @param <T> type of the result
+     * @return the cached or loaded result
+     * @throws DatabaseException when loading fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull String kind, @Nonnull Class<?> resultType, @Nonnull String statement, @CheckForNull Object parameter,
+        @CheckForNull RowBounds rowBounds, @Nonnull ResultLoader<T> loader) throws DatabaseException {
+        Region region = region(statement);
+        if (region == null) {
+            return loader.load();
+        }
+        QueryKey key = new QueryKey(kind, resultType, statement, parameter, rowBounds);
+        Object cached = region.cache.getIfPresent(key);
+        if (cached != null) {
+            return cached == NULL ? null : (T) cached;
+        }
+
+        AtomicLong generation = generation(namespace(statement));
+        long loadedGeneration = generation.get();
+        T result = loader.load();
+        if (result instanceof List) {
+            result = (T) Collections.unmodifiableList((List<?>) result);
+        }
+        region.cache.put(key, result != null ? result : NULL);
+        if (generation.get() != loadedGeneration) {
+            // A write happened while loading, the result may already be stale
+            region.cache.invalidate(key);
+        }
+        return result;
+    }
+
+    /**
+     * Invalidate the results that a write with the statement may have changed.
+     *
+     * @param statement id of the insert, update or delete statement
+     */
+    public void invalidateAfterWrite(@Nonnull String statement) {
+        String namespace = namespace(statement);
+        invalidateNamespace(namespace);
+        for (String dependentNamespace : dependentNamespaces.getOrDefault(namespace, Collections.emptySet())) {
+            invalidateNamespace(dependentNamespace);
+        }
+    }
+
+    /**
+     * Invalidate the cached results of every statement in the namespace, for instance after a write through a custom session.
+     */
+    public void invalidateNamespace(@Nonnull String namespace) {
+        invalidatedAt.put(namespace, System.nanoTime());
+        generation(namespace).incrementAndGet();
+        for (Region region : regions.values()) {
+            if (region.belongsTo(namespace)) {
+                region.cache.invalidateAll();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        allInvalidatedAt = System.nanoTime();
+        for (AtomicLong generation : generations.values()) {
+            generation.incrementAndGet();
+        }
+        for (Region region : regions.values()) {
+            region.cache.invalidateAll();
+        }
+    }
+
+    @CheckForNull
+    private Region region(String statement) {
+        Region region = regions.get(statement);
+        return region != null ? region : regions.get(namespace(statement));
+    }
+
+    private AtomicLong generation(String namespace) {
+        return generations.computeIfAbsent(namespace, key -> new AtomicLong());
+    }
+
+    private static String namespace(String statementOrNamespace) {
+        int separator = statementOrNamespace.lastIndexOf('.');
+        return separator < 0 ? "" : statementOrNamespace.substring(0, separator);
+    }
+
+    private static final class Region {
+
+        private final String statementOrNamespace;
+        private final Cache<QueryKey, Object> cache;
+
+        private Region(String statementOrNamespace, Cache<QueryKey, Object> cache) {
+            this.statementOrNamespace = statementOrNamespace;
+            this.cache = cache;
+        }
+
+        /**
+         * Namespaces contain dots as well, a region is therefore cleared for its own name and for the name up to the last dot. At worst a
+         * region is invalidated too often, never too little.
+         */
+        private boolean belongsTo(String namespace) {
+            return statementOrNamespace.equals(namespace) || namespace(statementOrNamespace).equals(namespace);
+        }
+
+    }
+
+}
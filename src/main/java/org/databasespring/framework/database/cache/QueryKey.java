@@ -0,0 +1,48 @@
+package org.databasespring.framework.database.cache;
+
+import java.util.Objects;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Identity of a select: the kind of select, the type the result is mapped to, statement, parameter and row bounds.
+ */
+final class QueryKey {
+
+    private final String kind;
+    private final Class<?> resultType;
+    private final String statement;
+    private final Object parameter;
+    private final int offset;
+    private final int limit;
+    private final int hashCode;
+
+    QueryKey(String kind, Class<?> resultType, String statement, Object parameter, RowBounds rowBounds) {
+        this.kind = kind;
+        this.resultType = resultType;
+        this.statement = statement;
+        this.parameter = parameter;
+        this.offset = rowBounds != null ? rowBounds.getOffset() : RowBounds.NO_ROW_OFFSET;
+        this.limit = rowBounds != null ? rowBounds.getLimit() : RowBounds.NO_ROW_LIMIT;
+        this.hashCode = Objects.hash(kind, resultType, statement, parameter, offset, limit);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (! (o instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey key = (QueryKey) o;
+        return offset == key.offset && limit == key.limit && kind.equals(key.kind) && resultType == key.resultType && statement.equals(key.statement)
+            && Objects.equals(parameter, key.parameter);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+}
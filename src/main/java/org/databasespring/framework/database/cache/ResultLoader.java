@@ -0,0 +1,13 @@
+package org.databasespring.framework.database.cache;
+
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Reads a result from the database when it can't be shared.
+ */
+@FunctionalInterface
+public interface ResultLoader<T> {
+
+    T load() throws DatabaseException;
+
+}
@@ -0,0 +1,133 @@
+package org.databasespring.framework.database.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.session.RowBounds;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+
+/**
+ * Opt-in coalescing of identical selects that run at the same time. The first caller reads from the database, callers arriving while that read
+ * is in flight wait for it and get the same result, or the same failure. Nothing is kept once the read completes, combine with a
+ * {@link QueryCache} to keep results.
+ * <p>
+ * Coalesced results are shared between callers and must not be changed, lists are returned unmodifiable. Parameters must implement
+ * {@code equals} and {@code hashCode}.
+ * <p>
+ * Writes through {@link org.databasespring.framework.database.session.WriteSession} call {@link #invalidate()}, a select started after a write
+ * only joins reads that started after that write as well, so it never gets a result read before the write.
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Load the result, or wait for an identical load that is already in flight.
+     *
+     * @param kind kind of select, different kinds of selects for the same statement are not coalesced
+     * @param resultType type the caller maps the result to
+     * @param statement statement id
+     * @param parameter parameter of the statement
+     * @param rowBounds row bounds of the statement
+     * @param loader reads the result from the database
+     * @param <T> type of the result
+     * @return the loaded result
+     * @throws DatabaseException when loading fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(@Nonnull String kind, @Nonnull Class<?> resultType, @Nonnull String statement, @CheckForNull Object parameter,
+        @CheckForNull RowBounds rowBounds, @Nonnull ResultLoader<T> loader) throws DatabaseException {
+        FlightKey key = new FlightKey(new QueryKey(kind, resultType, statement, parameter, rowBounds), epoch.get());
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            return (T) await(leader);
+        }
+
+        try {
+            T result = loader.load();
+            if (result instanceof List) {
+                result = (T) Collections.unmodifiableList((List<?>) result);
+            }
+            call.complete(result);
+            return result;
+        } catch (DatabaseException | RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Stop sharing the reads in flight with selects started from now on, called after a write was committed.
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * @return the number of distinct selects in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) throws DatabaseException {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException) {
+                throw (DatabaseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, cause);
+        }
+    }
+
+    /**
+     * Reads are only shared within the epoch they started in.
+     */
+    private static final class FlightKey {
+
+        private final QueryKey queryKey;
+        private final long epoch;
+
+        private FlightKey(QueryKey queryKey, long epoch) {
+            this.queryKey = queryKey;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (! (o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey flightKey = (FlightKey) o;
+            return epoch == flightKey.epoch && queryKey.equals(flightKey.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(queryKey, epoch);
+        }
+
+    }
+
+}
@@ -1,8 +1,13 @@
 package org.databasespring.framework.database.connection;
 
+import org.databasespring.framework.database.cache.QueryCache;
+import org.databasespring.framework.database.cache.SingleFlight;
 import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.metrics.QueryMetrics;
 import org.databasespring.framework.database.session.DatabaseSession;
 
+import javax.annotation.CheckForNull;
+
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.stereotype.Service;
@@ -13,6 +18,11 @@ import org.springframework.stereotype.Service;
 @Service
 public interface DatabaseConnection {
 
+    /**
+     * System property to opt in to running operations through {@code AccessController.doPrivileged} by default
+     */
+    String PRIVILEGED_PROPERTY = "databasespring.privileged";
+
     SqlSessionFactory getSqlSessionFactory();
 
     boolean isReadOnly();
@@ -21,6 +31,28 @@ public interface DatabaseConnection {
 
     ExecutorType getExecutorType();
 
+    /**
+     * @return whether operations are run through {@code AccessController.doPrivileged} instead of directly
+     */
+    boolean isPrivileged();
+
+    /**
+     * @return the metrics every operation on this connection is reported to
+     */
+    QueryMetrics getQueryMetrics();
+
+    /**
+     * @return the cache selects are read from and writes invalidate, null when results are not cached
+     */
+    @CheckForNull
+    QueryCache getQueryCache();
+
+    /**
+     * @return coalesces identical selects running at the same time and is invalidated by writes, null when selects are not coalesced
+     */
+    @CheckForNull
+    SingleFlight getSingleFlight();
+
     DatabaseSession session() throws DatabaseException;
 
 }
@@ -1,9 +1,17 @@
 package org.databasespring.framework.database.connection;
 
+import org.databasespring.framework.database.cache.QueryCache;
+import org.databasespring.framework.database.cache.SingleFlight;
+import org.databasespring.framework.database.metrics.QueryMetrics;
 import org.databasespring.framework.database.session.ReadSession;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -12,10 +20,42 @@ public class ReadConnection implements DatabaseConnection {
     private final SqlSessionFactory sqlSessionFactory;
     private static final boolean READ_ONLY = true;
     private static final boolean AUTO_COMMIT = true;
-    private static final ExecutorType EXECUTOR_TYPE = ExecutorType.SIMPLE;
+    private static final int FETCH_SIZE = 1000;
+    private static final ExecutorType DEFAULT_EXECUTOR_TYPE = ExecutorType.SIMPLE;
+
+    private final ExecutorType executorType;
+    private final boolean privileged;
+    private final QueryMetrics queryMetrics;
+    private final QueryCache queryCache;
+    private final SingleFlight singleFlight;
 
     public ReadConnection(SqlSessionFactory sqlSessionFactory) {
+        this(sqlSessionFactory, null);
+    }
+
+    public ReadConnection(SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics) {
+        this(sqlSessionFactory, queryMetrics, null);
+    }
+
+    public ReadConnection(SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics, @Nullable QueryCache queryCache) {
+        this(sqlSessionFactory, queryMetrics, queryCache, null);
+    }
+
+    @Autowired
+    public ReadConnection(@Qualifier("readSqlSessionFactory") SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics,
+        @Nullable QueryCache queryCache, @Nullable SingleFlight singleFlight) {
+        this(sqlSessionFactory, DEFAULT_EXECUTOR_TYPE, Boolean.getBoolean(PRIVILEGED_PROPERTY), queryMetrics != null ? queryMetrics : QueryMetrics.NOOP,
+            queryCache, singleFlight);
+    }
+
+    private ReadConnection(SqlSessionFactory sqlSessionFactory, ExecutorType executorType, boolean privileged, QueryMetrics queryMetrics,
+        QueryCache queryCache, SingleFlight singleFlight) {
         this.sqlSessionFactory = sqlSessionFactory;
+        this.executorType = executorType;
+        this.privileged = privileged;
+        this.queryMetrics = queryMetrics;
+        this.queryCache = queryCache;
+        this.singleFlight = singleFlight;
     }
 
     @Override
@@ -35,7 +75,59 @@ public class ReadConnection implements DatabaseConnection {
 
     @Override
     public ExecutorType getExecutorType() {
-        return EXECUTOR_TYPE;
+        return executorType;
+    }
+
+    /**
+     * Get a view of this connection with its own executor type, this connection is not changed. Sessions of a {@link ExecutorType#REUSE} view
+     * prepare each statement once and reuse it until they are closed. That only pays off for {@link ReadSession#custom} and
+     * {@link ReadSession#pipeline()} sessions running a statement more than once, a cursor must then be read to the end before its statement
+     * runs again in the same session.
+     *
+     * @param executorType {@link ExecutorType#SIMPLE} or {@link ExecutorType#REUSE}
+     * @return the connection view
+     */
+    public ReadConnection executorType(ExecutorType executorType) {
+        if (executorType == ExecutorType.BATCH) {
+            throw new IllegalArgumentException("A read connection can't batch");
+        }
+        return this.executorType == executorType ? this : new ReadConnection(sqlSessionFactory, executorType, privileged, queryMetrics, queryCache, singleFlight);
+    }
+
+    @Override
+    public boolean isPrivileged() {
+        return privileged;
+    }
+
+    /**
+     * @return a view of this connection that runs operations privileged or directly, this connection is not changed
+     */
+    public ReadConnection privileged(boolean privileged) {
+        return this.privileged == privileged ? this : new ReadConnection(sqlSessionFactory, executorType, privileged, queryMetrics, queryCache, singleFlight);
+    }
+
+    @Override
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    @CheckForNull
+    @Override
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    @CheckForNull
+    @Override
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return the number of rows fetched per round trip when streaming results
+     */
+    public int getFetchSize() {
+        return FETCH_SIZE;
     }
 
     @Override
@@ -1,20 +1,67 @@
 package org.databasespring.framework.database.connection;
 
+import org.databasespring.framework.database.cache.QueryCache;
+import org.databasespring.framework.database.cache.SingleFlight;
+import org.databasespring.framework.database.metrics.QueryMetrics;
 import org.databasespring.framework.database.session.WriteSession;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * Connection used for writing. The connection is immutable so it can be shared between threads, a different commit mode or executor type is
+ * obtained as a separate view through {@link #with(ExecutorType, boolean)}.
+ */
 @Service
 public class WriteConnection implements DatabaseConnection {
 
+    private static final boolean DEFAULT_AUTO_COMMIT = true;
+    private static final ExecutorType DEFAULT_EXECUTOR_TYPE = ExecutorType.SIMPLE;
+
     private final SqlSessionFactory sqlSessionFactory;
-    private boolean autoCommit = true;
-    private ExecutorType executorType = ExecutorType.SIMPLE;
+    private final boolean autoCommit;
+    private final ExecutorType executorType;
+    private final boolean privileged;
+    private final QueryMetrics queryMetrics;
+    private final QueryCache queryCache;
+    private final SingleFlight singleFlight;
 
     public WriteConnection(SqlSessionFactory sqlSessionFactory) {
+        this(sqlSessionFactory, null);
+    }
+
+    public WriteConnection(SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics) {
+        this(sqlSessionFactory, queryMetrics, null);
+    }
+
+    public WriteConnection(SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics, @Nullable QueryCache queryCache) {
+        this(sqlSessionFactory, queryMetrics, queryCache, null);
+    }
+
+    /**
+     * @param singleFlight coalescing of the reads, writes invalidate the reads in flight so they are not shared with reads after the write
+     */
+    @Autowired
+    public WriteConnection(SqlSessionFactory sqlSessionFactory, @Nullable QueryMetrics queryMetrics, @Nullable QueryCache queryCache,
+        @Nullable SingleFlight singleFlight) {
+        this(sqlSessionFactory, DEFAULT_EXECUTOR_TYPE, DEFAULT_AUTO_COMMIT, Boolean.getBoolean(PRIVILEGED_PROPERTY),
+            queryMetrics != null ? queryMetrics : QueryMetrics.NOOP, queryCache, singleFlight);
+    }
+
+    private WriteConnection(SqlSessionFactory sqlSessionFactory, ExecutorType executorType, boolean autoCommit, boolean privileged, QueryMetrics queryMetrics,
+        QueryCache queryCache, SingleFlight singleFlight) {
         this.sqlSessionFactory = sqlSessionFactory;
+        this.executorType = executorType;
+        this.autoCommit = autoCommit;
+        this.privileged = privileged;
+        this.queryMetrics = queryMetrics;
+        this.queryCache = queryCache;
+        this.singleFlight = singleFlight;
     }
 
     @Override
@@ -32,19 +79,58 @@ public class WriteConnection implements DatabaseConnection {
         return autoCommit;
     }
 
-    public WriteConnection autoCommit(boolean autoCommit) {
-        this.autoCommit = autoCommit;
-        return this;
-    }
-
     @Override
     public ExecutorType getExecutorType() {
         return executorType;
     }
 
-    public WriteConnection executorType(ExecutorType executorType) {
-        this.executorType = executorType;
-        return this;
+    /**
+     * Get a view of this connection with its own executor type and commit mode, sharing the session factory. Views are cheap to create and safe
+     * to use next to each other from different threads.
+     * <p>
+     * Single insert, update and delete calls are rejected on a {@link ExecutorType#BATCH} view, as a batching session only queues the statement.
+     * Batch views are meant for {@link WriteSession#inTransaction} and {@link WriteSession#custom}, {@code insertAll}, {@code updateAll} and
+     * {@code deleteAll} batch on any view. A {@link ExecutorType#REUSE} view lets transactions and custom sessions prepare each statement once,
+     * a cursor must then be read to the end before its statement runs again in the same session.
+     *
+     * @param executorType the executor type sessions of the view are opened with
+     * @param autoCommit whether sessions of the view commit every statement
+     * @return the connection view
+     */
+    public WriteConnection with(ExecutorType executorType, boolean autoCommit) {
+        if (this.executorType == executorType && this.autoCommit == autoCommit) {
+            return this;
+        }
+        return new WriteConnection(sqlSessionFactory, executorType, autoCommit, privileged, queryMetrics, queryCache, singleFlight);
+    }
+
+    @Override
+    public boolean isPrivileged() {
+        return privileged;
+    }
+
+    /**
+     * @return a view of this connection that runs operations privileged or directly, this connection is not changed
+     */
+    public WriteConnection privileged(boolean privileged) {
+        return this.privileged == privileged ? this : new WriteConnection(sqlSessionFactory, executorType, autoCommit, privileged, queryMetrics, queryCache, singleFlight);
+    }
+
+    @Override
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    @CheckForNull
+    @Override
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    @CheckForNull
+    @Override
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
     }
 
     @Override
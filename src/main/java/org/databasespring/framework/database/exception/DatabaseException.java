@@ -5,6 +5,7 @@ public class DatabaseException extends Exception {
     private final String message;
     private final String statement;
     private final Throwable cause;
+    private final DatabaseMessage databaseMessage;
 
     /**
      * Constructs a new exception with the specified detail message.  The cause is not initialized, and may subsequently be initialized by a call to {@link #initCause}.
@@ -16,6 +17,7 @@ public class DatabaseException extends Exception {
         this.message = message;
         this.cause = null;
         this.statement = null;
+        this.databaseMessage = null;
     }
 
     /**
@@ -28,6 +30,7 @@ public class DatabaseException extends Exception {
         this.message = message;
         this.statement = statement;
         this.cause = null;
+        this.databaseMessage = null;
     }
 
     /**
@@ -43,6 +46,7 @@ public class DatabaseException extends Exception {
         this.message = message;
         this.statement = null;
         this.cause = cause;
+        this.databaseMessage = null;
     }
 
     public DatabaseException(DatabaseMessage databaseMessage, Throwable cause) {
@@ -50,6 +54,7 @@ public class DatabaseException extends Exception {
         this.message = databaseMessage.getMessage();
         this.statement = null;
         this.cause = cause;
+        this.databaseMessage = databaseMessage;
     }
 
     /**
@@ -65,6 +70,7 @@ public class DatabaseException extends Exception {
         this.message = message;
         this.statement = statement;
         this.cause = cause;
+        this.databaseMessage = null;
     }
 
     @Override
@@ -76,6 +82,13 @@ public class DatabaseException extends Exception {
         return statement;
     }
 
+    /**
+     * @return the message type this exception was created with, {@code null} when created with a plain message
+     */
+    public DatabaseMessage getDatabaseMessage() {
+        return databaseMessage;
+    }
+
     @Override
     public synchronized Throwable getCause() {
         return cause;
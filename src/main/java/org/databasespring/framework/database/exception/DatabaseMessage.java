@@ -3,6 +3,13 @@ package org.databasespring.framework.database.exception;
 public enum DatabaseMessage {
     UNABLE_TO_EXECUTE("Unable to execute query"),
     UNKNOWN_EXCEPTION("Unknown exception type"),
+    UNABLE_TO_START_TRANSACTION("Unable to start transaction"),
+    UNABLE_TO_COMMIT("Unable to commit transaction"),
+    UNABLE_TO_ROLLBACK("Unable to rollback transaction"),
+    UNABLE_TO_READ_LOG_POSITION("Unable to read the write-ahead log position"),
+    UNABLE_TO_SCHEDULE("Unable to schedule the operation, too many operations are pending"),
+    UNABLE_TO_COPY("Unable to copy the rows into the table"),
+    INVALID_PAGE_TOKEN("Invalid page token"),
     ;
 
     private final String message;
@@ -0,0 +1,17 @@
+package org.databasespring.framework.database.exception;
+
+/**
+ * Carries a {@link DatabaseException} out of APIs that can't throw checked exceptions, such as streams and iterators.
+ */
+public class UncheckedDatabaseException extends RuntimeException {
+
+    public UncheckedDatabaseException(DatabaseException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized DatabaseException getCause() {
+        return (DatabaseException) super.getCause();
+    }
+
+}
@@ -0,0 +1,250 @@
+package org.databasespring.framework.database.mapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Writes the indexes read by {@link IndexedDatabaseMapperRegistry}: {@value IndexedDatabaseMapperRegistry#INDEX} lists every interface extending
+ * {@link DatabaseMapper} of the compiled sources, {@value IndexedDatabaseMapperRegistry#XML_INDEX} the mapper XML of the resource directories
+ * given by the {@value #MAPPER_RESOURCES} option by namespace, together with the mappers declaring all their statements by annotation. Enabled by
+ * adding this library to the annotation processor path of the module declaring the mappers, for example in Gradle:
+ * <pre>
+ * annotationProcessor 'org.database-spring:database-spring'
+ * compileJava.options.compilerArgs += ['-Adatabasespring.mapperResources=' + file('src/main/resources')]
+ * </pre>
+ * Without the option only the mappers are indexed and the mapper XML is found by resolving the {@code mapper-locations} pattern.
+ */
+@SupportedAnnotationTypes("*")
+public class DatabaseMapperIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Resource directories holding the mapper XML, separated by {@link File#pathSeparator}.
+     */
+    public static final String MAPPER_RESOURCES = "databasespring.mapperResources";
+
+    private static final Set<String> STATEMENT_ANNOTATIONS = Stream.of("Select", "Insert", "Update", "Delete", "SelectProvider", "InsertProvider",
+        "UpdateProvider", "DeleteProvider").map(annotation -> "org.apache.ibatis.annotations." + annotation).collect(Collectors.toSet());
+    private static final String ROOT_ELEMENT_READ = "Root element read";
+
+    private final Set<String> mappers = new TreeSet<>();
+    private final Map<String, String> mapperXml = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(MAPPER_RESOURCES);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        TypeElement databaseMapper = processingEnv.getElementUtils().getTypeElement(DatabaseMapper.class.getName());
+        if (databaseMapper == null) {
+            return false;
+        }
+
+        if (roundEnvironment.processingOver()) {
+            writeIndex();
+            String mapperResources = processingEnv.getOptions().get(MAPPER_RESOURCES);
+            if (mapperResources != null) {
+                writeXmlIndex(mapperResources);
+            }
+        } else {
+            TypeMirror databaseMapperType = processingEnv.getTypeUtils().erasure(databaseMapper.asType());
+            for (TypeElement typeElement : ElementFilter.typesIn(roundEnvironment.getRootElements())) {
+                collect(typeElement, databaseMapper, databaseMapperType);
+            }
+        }
+        // Other processors can still claim the annotations
+        return false;
+    }
+
+    private void collect(TypeElement typeElement, TypeElement databaseMapper, TypeMirror databaseMapperType) {
+        if (typeElement.getKind() == ElementKind.INTERFACE && ! typeElement.equals(databaseMapper)
+            && processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(typeElement.asType()), databaseMapperType)) {
+            String mapper = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+            mappers.add(mapper);
+            // Null marks a mapper compiled now that needs mapper XML, its entry of the previous index is dropped
+            mapperXml.put(mapper, isAnnotated(typeElement) ? "" : null);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(typeElement.getEnclosedElements())) {
+            collect(nested, databaseMapper, databaseMapperType);
+        }
+    }
+
+    private static boolean isAnnotated(TypeElement typeElement) {
+        for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.ABSTRACT) && method.getAnnotationMirrors().stream()
+                .map(AnnotationMirror::getAnnotationType).noneMatch(annotation -> STATEMENT_ANNOTATIONS.contains(annotation.toString()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeIndex() {
+        // An incremental compilation only sees the changed sources, keep the mappers of the previous index that still exist
+        for (String mapper : readPrevious(IndexedDatabaseMapperRegistry.INDEX)) {
+            if (exists(mapper)) {
+                mappers.add(mapper);
+            }
+        }
+        if (mappers.isEmpty()) {
+            return;
+        }
+        write(IndexedDatabaseMapperRegistry.INDEX, mappers);
+    }
+
+    private void writeXmlIndex(String mapperResources) {
+        // The mapper XML is read again from the resource directories, only the annotated mappers of the previous index are kept
+        for (String entry : readPrevious(IndexedDatabaseMapperRegistry.XML_INDEX)) {
+            int separator = entry.indexOf('=');
+            if (separator > 0 && separator == entry.length() - 1 && ! mapperXml.containsKey(entry.substring(0, separator))
+                && exists(entry.substring(0, separator))) {
+                mapperXml.put(entry.substring(0, separator), "");
+            }
+        }
+        for (String directory : mapperResources.split(File.pathSeparator)) {
+            if (! directory.trim().isEmpty()) {
+                indexXml(Paths.get(directory.trim()));
+            }
+        }
+
+        write(IndexedDatabaseMapperRegistry.XML_INDEX, mapperXml.entrySet().stream().filter(entry -> entry.getValue() != null)
+            .map(entry -> entry.getKey() + '=' + entry.getValue()).collect(Collectors.toList()));
+    }
+
+    private void indexXml(Path directory) {
+        if (! Files.isDirectory(directory)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, MAPPER_RESOURCES + " directory " + directory + " doesn't exist");
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(file -> file.getFileName().toString().endsWith(".xml") && Files.isRegularFile(file)).sorted()
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to list the mapper XML of " + directory + ": " + e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            String namespace = readNamespace(file);
+            if (namespace != null) {
+                mapperXml.put(namespace, directory.relativize(file).toString().replace(File.separatorChar, '/'));
+            }
+        }
+    }
+
+    /**
+     * @return the namespace of the mapper XML, null when the root element is no {@code mapper}
+     */
+    private String readNamespace(Path file) {
+        String[] namespace = new String[1];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+            saxParserFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DefaultHandler handler = new DefaultHandler() {
+                @Override
+                public InputSource resolveEntity(String publicId, String systemId) {
+                    return new InputSource(new StringReader(""));
+                }
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+                    if ("mapper".equals(qName)) {
+                        namespace[0] = attributes.getValue("namespace");
+                    }
+                    // Only the root element is needed
+                    throw new SAXException(ROOT_ELEMENT_READ);
+                }
+            };
+            saxParserFactory.newSAXParser().parse(inputStream, handler);
+        } catch (SAXException e) {
+            if (! ROOT_ELEMENT_READ.equals(e.getMessage())) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unable to read " + file + ": " + e.getMessage());
+            }
+        } catch (IOException | ParserConfigurationException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Unable to read " + file + ": " + e.getMessage());
+        }
+        return namespace[0] == null || namespace[0].trim().isEmpty() ? null : namespace[0].trim();
+    }
+
+    private Set<String> readPrevious(String resource) {
+        Set<String> entries = new TreeSet<>();
+        try {
+            FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(previous.openInputStream(), StandardCharsets.UTF_8))) {
+                String entry;
+                while ((entry = reader.readLine()) != null) {
+                    if (! entry.trim().isEmpty()) {
+                        entries.add(entry.trim());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No previous index
+        }
+        return entries;
+    }
+
+    private boolean exists(String binaryName) {
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+    }
+
+    private void write(String resource, Iterable<String> entries) {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (Writer writer = index.openWriter()) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + resource + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -5,7 +5,8 @@ import java.util.List;
 import javax.annotation.Nonnull;
 
 /**
- * For now contains only getting the registry, can be extended to include a filtering of some sorts
+ * For now contains only getting the registry, can be extended to include a filtering of some sorts. Implementations are found through
+ * {@link java.util.ServiceLoader}, see {@link DatabaseMappers#discover(ClassLoader)}.
  */
 public interface DatabaseMapperRegistry {
 
@@ -0,0 +1,98 @@
+package org.databasespring.framework.database.mapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+
+/**
+ * The mapper interfaces of the application, discovered through the {@link DatabaseMapperRegistry} implementations registered with
+ * {@link ServiceLoader} and the mappers indexed at compile time, see {@link IndexedDatabaseMapperRegistry}. Every mapper
+ * is available wrapped in a {@link DatabaseMapperWrapper}, running its statements in the Spring managed transaction when there is one.
+ */
+public class DatabaseMappers {
+
+    private final Map<Class<?>, DatabaseMapperWrapper<?>> wrappers = new LinkedHashMap<>();
+
+    /**
+     * @param sqlSessionFactory session factory the mappers are registered with
+     * @param databaseMappers   the mapper interfaces, see {@link #discover(ClassLoader)}
+     */
+    public DatabaseMappers(@Nonnull SqlSessionFactory sqlSessionFactory, @Nonnull Collection<Class<? extends DatabaseMapper>> databaseMappers) {
+        register(sqlSessionFactory.getConfiguration(), databaseMappers);
+        SqlSession sqlSession = new SqlSessionTemplate(sqlSessionFactory);
+        for (Class<? extends DatabaseMapper> databaseMapper : databaseMappers) {
+            wrappers.put(databaseMapper, wrap(sqlSession, databaseMapper));
+        }
+    }
+
+    /**
+     * @param classLoader class loader to find the registries and the mappers with
+     * @return the indexed mappers followed by the mappers of every registry, in the order the registries were found
+     */
+    @Nonnull
+    public static List<Class<? extends DatabaseMapper>> discover(@Nonnull ClassLoader classLoader) {
+        return discover(new IndexedDatabaseMapperRegistry(classLoader), classLoader);
+    }
+
+    /**
+     * @param indexedDatabaseMapperRegistry the indexed mappers, read once when its mapper XML is needed as well
+     * @param classLoader                   class loader to find the registries with
+     * @return the indexed mappers followed by the mappers of every registry, in the order the registries were found
+     */
+    @Nonnull
+    public static List<Class<? extends DatabaseMapper>> discover(@Nonnull IndexedDatabaseMapperRegistry indexedDatabaseMapperRegistry,
+        @Nonnull ClassLoader classLoader) {
+        Set<Class<? extends DatabaseMapper>> databaseMappers = new LinkedHashSet<>(indexedDatabaseMapperRegistry.getRegistry());
+        for (DatabaseMapperRegistry databaseMapperRegistry : ServiceLoader.load(DatabaseMapperRegistry.class, classLoader)) {
+            databaseMappers.addAll(databaseMapperRegistry.getRegistry());
+        }
+        return new ArrayList<>(databaseMappers);
+    }
+
+    /**
+     * Adds the mappers MyBatis doesn't know yet, which parses their annotations and the mapper XML next to the interface.
+     */
+    public static void register(@Nonnull Configuration configuration, @Nonnull Collection<Class<? extends DatabaseMapper>> databaseMappers) {
+        for (Class<? extends DatabaseMapper> databaseMapper : databaseMappers) {
+            if (! configuration.hasMapper(databaseMapper)) {
+                configuration.addMapper(databaseMapper);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException when the mapper was not discovered
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public <T extends DatabaseMapper> DatabaseMapperWrapper<T> getWrapper(@Nonnull Class<T> databaseMapper) {
+        DatabaseMapperWrapper<?> wrapper = wrappers.get(databaseMapper);
+        if (wrapper == null) {
+            throw new IllegalArgumentException("Unknown mapper " + databaseMapper.getName());
+        }
+        return (DatabaseMapperWrapper<T>) wrapper;
+    }
+
+    @Nonnull
+    public Collection<DatabaseMapperWrapper<?>> getWrappers() {
+        return Collections.unmodifiableCollection(wrappers.values());
+    }
+
+    private static <T extends DatabaseMapper> DatabaseMapperWrapper<T> wrap(SqlSession sqlSession, Class<T> databaseMapper) {
+        return new DatabaseMapperWrapper<>(sqlSession.getMapper(databaseMapper));
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.databasespring.framework.database.mapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Registry of the mappers listed in the {@value #INDEX} files written by {@link DatabaseMapperIndexProcessor}. Every jar has its own index, the
+ * index files are found by name, the classpath is not scanned. The mapper XML listed in the {@value #XML_INDEX} files is available through
+ * {@link #getMapperXml(Collection)}.
+ */
+public class IndexedDatabaseMapperRegistry implements DatabaseMapperRegistry {
+
+    static final String INDEX = "META-INF/databasespring/mappers";
+    static final String XML_INDEX = "META-INF/databasespring/mapper-xml";
+
+    private final ClassLoader classLoader;
+    private final List<Class<? extends DatabaseMapper>> registry;
+    private final Map<String, String> mapperXml;
+
+    /**
+     * @throws IllegalStateException when an indexed mapper can't be loaded
+     */
+    public IndexedDatabaseMapperRegistry(@Nonnull ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.registry = Collections.unmodifiableList(read(classLoader));
+        this.mapperXml = readXml(classLoader);
+    }
+
+    @Nonnull
+    @Override
+    public List<Class<? extends DatabaseMapper>> getRegistry() {
+        return registry;
+    }
+
+    /**
+     * The indexed mapper XML, so the session factories don't have to resolve a {@code mapper-locations} pattern. A mapper is covered when the
+     * index lists mapper XML for its namespace, lists it as declaring its statements by annotation, or when it has mapper XML next to the
+     * interface, which MyBatis reads when the mapper is registered.
+     *
+     * @param databaseMappers the mappers the mapper XML is needed for
+     * @return the classpath resources of the indexed mapper XML, null when no mapper XML was indexed or when a mapper isn't covered
+     */
+    @CheckForNull
+    public List<String> getMapperXml(@Nonnull Collection<Class<? extends DatabaseMapper>> databaseMappers) {
+        if (mapperXml == null) {
+            return null;
+        }
+        for (Class<? extends DatabaseMapper> databaseMapper : databaseMappers) {
+            if (! mapperXml.containsKey(databaseMapper.getName())
+                && classLoader.getResource(databaseMapper.getName().replace('.', '/') + ".xml") == null) {
+                return null;
+            }
+        }
+        return mapperXml.values().stream().filter(resource -> ! resource.isEmpty()).distinct().collect(Collectors.toList());
+    }
+
+    private static List<Class<? extends DatabaseMapper>> read(ClassLoader classLoader) {
+        Set<String> names = readEntries(classLoader, INDEX);
+        if (names == null) {
+            return new ArrayList<>();
+        }
+        List<Class<? extends DatabaseMapper>> mappers = new ArrayList<>(names.size());
+        for (String name : names) {
+            Class<?> mapper;
+            try {
+                mapper = Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalStateException("Unable to load indexed mapper " + name, e);
+            }
+            if (! DatabaseMapper.class.isAssignableFrom(mapper)) {
+                throw new IllegalStateException("Indexed mapper " + name + " is not a " + DatabaseMapper.class.getSimpleName());
+            }
+            mappers.add(mapper.asSubclass(DatabaseMapper.class));
+        }
+        return mappers;
+    }
+
+    private static Map<String, String> readXml(ClassLoader classLoader) {
+        Set<String> entries = readEntries(classLoader, XML_INDEX);
+        if (entries == null) {
+            return null;
+        }
+        Map<String, String> mapperXml = new LinkedHashMap<>();
+        for (String entry : entries) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("Invalid entry " + entry + " in " + XML_INDEX);
+            }
+            // Every mapper XML is read, the first index listing a namespace wins like the first class on the classpath
+            mapperXml.putIfAbsent(entry.substring(0, separator), entry.substring(separator + 1));
+        }
+        return mapperXml;
+    }
+
+    /**
+     * @return the entries of all index files, null when there are none
+     */
+    private static Set<String> readEntries(ClassLoader classLoader, String index) {
+        Set<String> entries = null;
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(index);
+            while (indexes.hasMoreElements()) {
+                if (entries == null) {
+                    entries = new LinkedHashSet<>();
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String entry;
+                    while ((entry = reader.readLine()) != null) {
+                        if (! entry.trim().isEmpty()) {
+                            entries.add(entry.trim());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + index, e);
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.databasespring.framework.database.mapper;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Validates the mappers of a {@link Configuration} at startup instead of at the first query using them:
+ * <ul>
+ *     <li>statements, result maps and cache references left incomplete while parsing the mapper XML are built, failing on the first that can't
+ *     be built</li>
+ *     <li>every method of the mapper interfaces known to MyBatis or listed by a {@link DatabaseMapperRegistry} has a mapped statement</li>
+ *     <li>every property of a result map can be set on its type</li>
+ * </ul>
+ * The reflection metadata of the result and parameter types is loaded along the way, so the first queries don't pay for it. MyBatis can't parse
+ * mapper XML into one configuration concurrently, the checks of the built statements run in parallel.
+ */
+public class MapperValidator {
+
+    private static final Logger LOG = LogManager.getLogger(MapperValidator.class);
+
+    private final Collection<DatabaseMapperRegistry> databaseMapperRegistries;
+
+    public MapperValidator(@Nonnull Collection<DatabaseMapperRegistry> databaseMapperRegistries) {
+        this.databaseMapperRegistries = databaseMapperRegistries;
+    }
+
+    /**
+     * @param configuration the configuration to validate, mappers listed by a registry that are not known yet are added to it
+     * @throws IllegalStateException listing every problem found
+     */
+    public void validate(@Nonnull Configuration configuration) {
+        long start = System.nanoTime();
+        List<String> problems = new ArrayList<>();
+        try {
+            // Builds everything that was left incomplete while parsing the mapper XML
+            configuration.getMappedStatementNames();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Unable to build the mapped statements: " + e.getMessage(), e);
+        }
+
+        Set<Class<?>> mappers = new LinkedHashSet<>(configuration.getMapperRegistry().getMappers());
+        for (DatabaseMapperRegistry databaseMapperRegistry : databaseMapperRegistries) {
+            for (Class<? extends DatabaseMapper> mapper : databaseMapperRegistry.getRegistry()) {
+                if (! configuration.hasMapper(mapper)) {
+                    try {
+                        configuration.addMapper(mapper);
+                    } catch (RuntimeException e) {
+                        problems.add("Unable to add mapper " + mapper.getName() + ": " + e.getMessage());
+                        continue;
+                    }
+                }
+                mappers.add(mapper);
+            }
+        }
+        for (Class<?> mapper : mappers) {
+            checkMapper(configuration, mapper, problems);
+        }
+
+        Collection<String> statementProblems = new ConcurrentLinkedQueue<>();
+        ReflectorFactory reflectorFactory = configuration.getReflectorFactory();
+        mappedStatements(configuration).parallelStream().forEach(mappedStatement -> checkStatement(reflectorFactory, mappedStatement, statementProblems));
+        problems.addAll(statementProblems);
+
+        if (! problems.isEmpty()) {
+            throw new IllegalStateException("Invalid mappers:\n" + String.join("\n", problems));
+        }
+        LOG.info("Validated {} mappers in {} ms", mappers.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void checkMapper(Configuration configuration, Class<?> mapper, List<String> problems) {
+        for (Method method : mapper.getMethods()) {
+            if (! Modifier.isAbstract(method.getModifiers()) || method.isBridge()) {
+                continue;
+            }
+            // Like MyBatis, a statement of an inherited method can be declared in the namespace of the mapper or of the interface declaring it
+            String statement = mapper.getName() + "." + method.getName();
+            if (! configuration.hasStatement(statement, false)
+                && ! configuration.hasStatement(method.getDeclaringClass().getName() + "." + method.getName(), false)) {
+                problems.add("No mapped statement " + statement);
+            }
+        }
+    }
+
+    private static void checkStatement(ReflectorFactory reflectorFactory, MappedStatement mappedStatement, Collection<String> problems) {
+        if (mappedStatement.getParameterMap().getType() != null) {
+            reflectorFactory.findForClass(mappedStatement.getParameterMap().getType());
+        }
+        for (ResultMap resultMap : mappedStatement.getResultMaps()) {
+            checkResultMap(reflectorFactory, mappedStatement, resultMap, problems);
+        }
+    }
+
+    private static void checkResultMap(ReflectorFactory reflectorFactory, MappedStatement mappedStatement, ResultMap resultMap, Collection<String> problems) {
+        if (Map.class.isAssignableFrom(resultMap.getType())) {
+            return;
+        }
+        MetaClass metaClass = MetaClass.forClass(resultMap.getType(), reflectorFactory);
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (resultMapping.getProperty() == null || resultMapping.getFlags().contains(ResultFlag.CONSTRUCTOR)) {
+                continue;
+            }
+            if (! metaClass.hasSetter(resultMapping.getProperty())) {
+                problems.add("No property " + resultMapping.getProperty() + " on " + resultMap.getType().getName() + " in result map " + resultMap.getId()
+                    + " of " + mappedStatement.getId());
+            } else if (resultMapping.getJavaType() != null) {
+                reflectorFactory.findForClass(resultMapping.getJavaType());
+            }
+        }
+    }
+
+    /**
+     * The statements by their full id, the configuration also holds them by their short id and marks short ids used by more than one
+     * namespace with a placeholder that is not a {@link MappedStatement}.
+     */
+    private static Collection<MappedStatement> mappedStatements(Configuration configuration) {
+        Set<MappedStatement> mappedStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object mappedStatement : configuration.getMappedStatements()) {
+            if (mappedStatement instanceof MappedStatement) {
+                mappedStatements.add((MappedStatement) mappedStatement);
+            }
+        }
+        return mappedStatements;
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.databasespring.framework.database.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.session.operation.QueryOperation;
+
+/**
+ * Reports every measurement to each of the given metrics, in order.
+ */
+public class CompositeQueryMetrics implements QueryMetrics {
+
+    private final QueryMetrics[] queryMetrics;
+
+    public CompositeQueryMetrics(QueryMetrics... queryMetrics) {
+        List<QueryMetrics> delegates = new ArrayList<>(Arrays.asList(queryMetrics));
+        delegates.removeIf(delegate -> delegate == null || delegate == QueryMetrics.NOOP);
+        this.queryMetrics = delegates.toArray(new QueryMetrics[0]);
+    }
+
+    @Override
+    public void completed(QueryOperation<?> operation, long sessionNanos, long executeNanos, int rows) {
+        for (QueryMetrics delegate : queryMetrics) {
+            delegate.completed(operation, sessionNanos, executeNanos, rows);
+        }
+    }
+
+    @Override
+    public void failed(QueryOperation<?> operation, DatabaseMessage databaseMessage, long nanos) {
+        for (QueryMetrics delegate : queryMetrics) {
+            delegate.failed(operation, databaseMessage, nanos);
+        }
+    }
+
+    @Override
+    public void statementExecuted(boolean reused) {
+        for (QueryMetrics delegate : queryMetrics) {
+            delegate.statementExecuted(reused);
+        }
+    }
+
+}
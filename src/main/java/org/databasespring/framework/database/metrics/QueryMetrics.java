@@ -0,0 +1,45 @@
+package org.databasespring.framework.database.metrics;
+
+import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.session.operation.QueryOperation;
+
+/**
+ * Receives the measurements of every operation, implementations can forward them to a metrics registry. Implementations are called on the
+ * query thread and must be fast and thread safe. All methods default to doing nothing.
+ */
+public interface QueryMetrics {
+
+    QueryMetrics NOOP = new QueryMetrics() {
+    };
+
+    /**
+     * Called when an operation completed.
+     *
+     * @param operation the operation, {@link QueryOperation#getStatement()} identifies the mapped statement
+     * @param sessionNanos time spent opening the session and obtaining its connection
+     * @param executeNanos time spent executing the statement and mapping its results
+     * @param rows rows selected or affected by the operation, {@code -1} when unknown at completion (for instance a cursor)
+     */
+    default void completed(QueryOperation<?> operation, long sessionNanos, long executeNanos, int rows) {
+    }
+
+    /**
+     * Called when an operation failed.
+     *
+     * @param operation the operation, {@link QueryOperation#getStatement()} identifies the mapped statement
+     * @param databaseMessage the most specific reason of the failure
+     * @param nanos time until the operation failed
+     */
+    default void failed(QueryOperation<?> operation, DatabaseMessage databaseMessage, long nanos) {
+    }
+
+    /**
+     * Called for every statement execution seen by the {@link org.databasespring.framework.database.session.interceptor.StatementReuseInterceptor},
+     * the fraction of reused executions is the hit rate of the statement reuse.
+     *
+     * @param reused whether the session reused a prepared statement instead of preparing a new one
+     */
+    default void statementExecuted(boolean reused) {
+    }
+
+}
@@ -0,0 +1,182 @@
+package org.databasespring.framework.database.metrics;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.session.operation.QueryOperation;
+
+/**
+ * Logs operations that take longer than a threshold, with their SQL and, for a sample of them, a size capped dump of the parameter. The query
+ * thread only captures the details, writing the log happens on a background thread. When the background thread can't keep up entries are
+ * dropped rather than blocking queries.
+ * <p>
+ * As the caller may change the parameter once the operation returned, rendering the SQL of a slow operation, which evaluates its dynamic SQL,
+ * stays on the query thread. The parameter dump stops at the maximum length, collections, maps, arrays and the properties of beans are only
+ * rendered as far as they fit, nested values up to a few levels deep.
+ */
+public class SlowQueryLog implements QueryMetrics, AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(SlowQueryLog.class);
+    private static final int QUEUE_SIZE = 1024;
+    private static final int MAX_DEPTH = 3;
+
+    private final Configuration configuration;
+    private final long thresholdNanos;
+    private final double parameterSampleRate;
+    private final int maxParameterLength;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param configuration configuration of the session factory, used to render the SQL of the statements
+     * @param thresholdMillis operations taking at least this long are logged
+     * @param parameterSampleRate fraction, between 0 and 1, of the logged operations that include the parameter
+     * @param maxParameterLength maximum number of characters of the parameter dump
+     */
+    public SlowQueryLog(Configuration configuration, long thresholdMillis, double parameterSampleRate, int maxParameterLength) {
+        if (parameterSampleRate < 0 || parameterSampleRate > 1) {
+            throw new IllegalArgumentException("Parameter sample rate must be between 0 and 1");
+        }
+        this.configuration = configuration;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.parameterSampleRate = parameterSampleRate;
+        this.maxParameterLength = maxParameterLength;
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-log");
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> dropped.incrementAndGet());
+    }
+
+    @Override
+    public void completed(QueryOperation<?> operation, long sessionNanos, long executeNanos, int rows) {
+        long nanos = sessionNanos + executeNanos;
+        if (nanos >= thresholdNanos) {
+            record(operation, nanos, "completed, " + rows + " rows, " + TimeUnit.NANOSECONDS.toMillis(sessionNanos) + " ms opening the session");
+        }
+    }
+
+    @Override
+    public void failed(QueryOperation<?> operation, DatabaseMessage databaseMessage, long nanos) {
+        if (nanos >= thresholdNanos) {
+            record(operation, nanos, "failed: " + databaseMessage.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of slow operations that weren't logged because the log was behind
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+    }
+
+    private void record(QueryOperation<?> operation, long nanos, String outcome) {
+        // The parameter may be changed by the caller afterwards, so the details are captured on the query thread
+        String statement = operation.getStatement();
+        String sql = sql(statement, operation.getParameter());
+        String parameter = ThreadLocalRandom.current().nextDouble() < parameterSampleRate ? dump(operation.getParameter()) : "<not sampled>";
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        writer.execute(() -> LOG.warn("Slow query {} took {} ms ({}), sql: {}, parameter: {}", statement, millis, outcome, sql, parameter));
+    }
+
+    private String sql(String statement, Object parameter) {
+        try {
+            MappedStatement mappedStatement = configuration.getMappedStatement(statement);
+            return StringUtils.normalizeSpace(mappedStatement.getBoundSql(parameter).getSql());
+        } catch (RuntimeException e) {
+            // Unknown statement or a parameter that no longer binds, the statement id is logged anyway
+            return "<unavailable>";
+        }
+    }
+
+    private String dump(Object parameter) {
+        int maxLength = Math.max(maxParameterLength, 4);
+        StringBuilder dump = new StringBuilder();
+        try {
+            append(dump, parameter, maxLength, 0);
+        } catch (RuntimeException e) {
+            // A getter that fails, the part rendered so far is still logged
+            dump.append("<unavailable>");
+        }
+        return StringUtils.abbreviate(dump.toString(), maxLength);
+    }
+
+    /**
+     * Append the value as long as the dump is shorter than the maximum length, so a large parameter is never rendered completely just to be cut
+     * off. The dump may end up slightly longer than the maximum, the caller abbreviates it.
+     */
+    private void append(StringBuilder dump, Object value, int maxLength, int depth) {
+        int remaining = maxLength - dump.length();
+        if (remaining <= 0) {
+            return;
+        }
+        if (value == null || configuration.getTypeHandlerRegistry().hasTypeHandler(value.getClass())) {
+            // Strings, numbers, dates and the like, a string is already in memory and only its start is copied
+            String text = String.valueOf(value);
+            dump.append(text, 0, Math.min(text.length(), remaining + 1));
+        } else if (value.getClass().isArray()) {
+            if (value instanceof Object[]) {
+                appendAll(dump, Arrays.asList((Object[]) value).iterator(), ((Object[]) value).length, maxLength, depth);
+            } else {
+                dump.append(value.getClass().getComponentType().getName()).append('[').append(Array.getLength(value)).append(']');
+            }
+        } else if (value instanceof Collection) {
+            appendAll(dump, ((Collection<?>) value).iterator(), ((Collection<?>) value).size(), maxLength, depth);
+        } else if (value instanceof Map) {
+            dump.append('{');
+            Iterator<? extends Map.Entry<?, ?>> iterator = ((Map<?, ?>) value).entrySet().iterator();
+            while (iterator.hasNext() && dump.length() < maxLength) {
+                Map.Entry<?, ?> entry = iterator.next();
+                append(dump, entry.getKey(), maxLength, depth + 1);
+                dump.append('=');
+                append(dump, entry.getValue(), maxLength, depth + 1);
+                dump.append(iterator.hasNext() ? ", " : "");
+            }
+            dump.append('}');
+        } else if (depth >= MAX_DEPTH) {
+            dump.append(value.getClass().getSimpleName()).append("{...}");
+        } else {
+            // A bean, its properties rather than a toString of unknown size
+            MetaObject metaObject = configuration.newMetaObject(value);
+            dump.append(value.getClass().getSimpleName()).append('{');
+            String[] getterNames = metaObject.getGetterNames();
+            for (int i = 0; i < getterNames.length && dump.length() < maxLength; i++) {
+                dump.append(i > 0 ? ", " : "").append(getterNames[i]).append('=');
+                append(dump, metaObject.getValue(getterNames[i]), maxLength, depth + 1);
+            }
+            dump.append('}');
+        }
+    }
+
+    private void appendAll(StringBuilder dump, Iterator<?> iterator, int size, int maxLength, int depth) {
+        dump.append(size).append(" items [");
+        while (iterator.hasNext() && dump.length() < maxLength) {
+            append(dump, iterator.next(), maxLength, depth + 1);
+            if (iterator.hasNext()) {
+                dump.append(", ");
+            }
+        }
+        dump.append(']');
+    }
+
+}
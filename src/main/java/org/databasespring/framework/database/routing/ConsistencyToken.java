@@ -0,0 +1,66 @@
+package org.databasespring.framework.database.routing;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Position in the PostgreSQL write-ahead log a read must observe. Obtained from the primary after a write, reads passing the token only use a
+ * replica that replayed the log up to this position.
+ */
+public final class ConsistencyToken implements Comparable<ConsistencyToken> {
+
+    private final long position;
+
+    private ConsistencyToken(long position) {
+        this.position = position;
+    }
+
+    public static ConsistencyToken of(long position) {
+        return new ConsistencyToken(position);
+    }
+
+    /**
+     * @param lsn log sequence number in the textual form of PostgreSQL, for instance {@code 16/B374D848}
+     * @return the token for the position
+     */
+    public static ConsistencyToken parse(@Nonnull String lsn) {
+        int separator = lsn.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid log sequence number " + lsn);
+        }
+        long high = Long.parseLong(lsn.substring(0, separator), 16);
+        long low = Long.parseLong(lsn.substring(separator + 1), 16);
+        return new ConsistencyToken(high << 32 | low);
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return whether a replica that replayed up to the given position observes this token
+     */
+    public boolean isReachedBy(long replayedPosition) {
+        return Long.compareUnsigned(replayedPosition, position) >= 0;
+    }
+
+    @Override
+    public int compareTo(ConsistencyToken other) {
+        return Long.compareUnsigned(position, other.position);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ConsistencyToken && ((ConsistencyToken) o).position == position);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(position);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(position >>> 32).toUpperCase() + "/" + Long.toHexString(position & 0xFFFFFFFFL).toUpperCase();
+    }
+
+}
@@ -0,0 +1,37 @@
+package org.databasespring.framework.database.routing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Chooses a replica at random, weighted by the inverse of its latency, so faster replicas get proportionally more reads without starving the
+ * slower ones of the samples that would show they recovered.
+ */
+public class LatencyWeightedLoadBalancer implements LoadBalancer {
+
+    // Latency assumed for replicas without samples, keeps them from getting an infinite weight
+    private static final double MIN_LATENCY_NANOS = 1_000;
+
+    @Nonnull
+    @Override
+    public Replica choose(@Nonnull List<Replica> replicas) {
+        double[] weights = new double[replicas.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 / Math.max(replicas.get(i).getLatencyNanos(), MIN_LATENCY_NANOS);
+            total += weights[i];
+        }
+
+        double target = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return replicas.get(i);
+            }
+        }
+        return replicas.get(weights.length - 1);
+    }
+
+}
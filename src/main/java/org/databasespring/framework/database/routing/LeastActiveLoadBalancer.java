@@ -0,0 +1,24 @@
+package org.databasespring.framework.database.routing;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Chooses the replica with the fewest connections in use, the first one wins a tie.
+ */
+public class LeastActiveLoadBalancer implements LoadBalancer {
+
+    @Nonnull
+    @Override
+    public Replica choose(@Nonnull List<Replica> replicas) {
+        Replica least = replicas.get(0);
+        for (int i = 1; i < replicas.size(); i++) {
+            if (replicas.get(i).getActiveConnections() < least.getActiveConnections()) {
+                least = replicas.get(i);
+            }
+        }
+        return least;
+    }
+
+}
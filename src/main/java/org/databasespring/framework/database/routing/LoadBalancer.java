@@ -0,0 +1,20 @@
+package org.databasespring.framework.database.routing;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Chooses the replica a read is sent to.
+ */
+@FunctionalInterface
+public interface LoadBalancer {
+
+    /**
+     * @param replicas the available replicas, never empty
+     * @return one of the given replicas
+     */
+    @Nonnull
+    Replica choose(@Nonnull List<Replica> replicas);
+
+}
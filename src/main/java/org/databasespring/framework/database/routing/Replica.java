@@ -0,0 +1,155 @@
+package org.databasespring.framework.database.routing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * A read replica together with the statistics the {@link LoadBalancer} decides on: the connections currently in use, a moving average of the
+ * time to obtain a connection and whether it is ejected after failing.
+ */
+public class Replica {
+
+    // Weight of the newest sample in the moving average of the latency
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String name;
+    private final DataSource dataSource;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private volatile double latencyNanos;
+    private volatile long ejectedUntil;
+    private volatile boolean ejected;
+    private volatile long replayedPosition;
+
+    public Replica(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @return moving average of the time it takes to obtain a connection, in nanoseconds
+     */
+    public double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return whether the replica can be used, an ejected replica becomes available again once its ejection expired
+     */
+    public boolean isAvailable() {
+        return ! ejected || System.nanoTime() - ejectedUntil >= 0;
+    }
+
+    /**
+     * Stop using the replica for the given duration.
+     */
+    public void eject(long duration, TimeUnit unit) {
+        ejectedUntil = System.nanoTime() + unit.toNanos(duration);
+        ejected = true;
+    }
+
+    /**
+     * Use the replica again before its ejection expired.
+     */
+    public void reinstate() {
+        ejected = false;
+    }
+
+    /**
+     * Check whether the replica gives a working connection. The connection is not counted as active.
+     *
+     * @param timeoutSeconds time the validation of the connection may take
+     * @return whether the replica responded
+     */
+    public boolean probe(int timeoutSeconds) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Obtain a connection, the connection counts as active until it is closed.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = dataSource.getConnection();
+        long latency = System.nanoTime() - start;
+        latencyNanos = latencyNanos == 0 ? latency : latencyNanos + LATENCY_SMOOTHING * (latency - latencyNanos);
+        ejected = false;
+        activeConnections.incrementAndGet();
+        return track(connection);
+    }
+
+    /**
+     * Whether the replica replayed the log up to the token. The last known position is remembered, the replica is only asked again while it
+     * was behind.
+     *
+     * @param token the position that must be observed
+     * @param connection a connection to this replica
+     */
+    public boolean hasReplayed(ConsistencyToken token, Connection connection) {
+        if (token.isReachedBy(replayedPosition)) {
+            return true;
+        }
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT pg_last_wal_replay_lsn()")) {
+            String lsn = resultSet.next() ? resultSet.getString(1) : null;
+            if (lsn == null) {
+                // Not in recovery, the server is not a standby and has every write
+                return true;
+            }
+            long position = ConsistencyToken.parse(lsn).getPosition();
+            if (Long.compareUnsigned(position, replayedPosition) > 0) {
+                replayedPosition = position;
+            }
+            return token.isReachedBy(position);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection track(Connection connection) {
+        AtomicInteger closed = new AtomicInteger();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+            if ("close".equals(method.getName()) && closed.getAndIncrement() == 0) {
+                activeConnections.decrementAndGet();
+            }
+            if ("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName())) {
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return "unwrap".equals(method.getName()) ? proxy : Boolean.TRUE;
+                }
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
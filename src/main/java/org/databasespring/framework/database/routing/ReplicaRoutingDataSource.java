@@ -0,0 +1,180 @@
+package org.databasespring.framework.database.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Data source handing out connections to read replicas. The replica is chosen by the {@link LoadBalancer}, a replica that fails to give a
+ * connection is ejected for a while and the next one is tried. Without any available replica the primary is used. With
+ * {@link #startHealthChecks(long)} the replicas are probed in the background, so a replica that went down is ejected before reads wait for it and
+ * an ejected replica is used again as soon as it responds. The pools of the replicas should time out quickly, as a read waits for the pool of a
+ * replica that went down between two probes.
+ * <p>
+ * When the current thread requires a {@link ConsistencyToken} only replicas that replayed the log up to the token are used.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<ConsistencyToken> CONSISTENCY_TOKEN = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+    private static final int PROBE_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final LoadBalancer loadBalancer;
+    private final long ejectionMillis;
+    private ScheduledExecutorService healthChecks;
+
+    /**
+     * @param primary data source used when no replica is available
+     * @param replicas the read replicas
+     * @param loadBalancer strategy choosing between the available replicas
+     * @param ejectionMillis time a failing replica is left out
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, LoadBalancer loadBalancer, long ejectionMillis) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.loadBalancer = loadBalancer;
+        this.ejectionMillis = ejectionMillis;
+    }
+
+    /**
+     * Require connections obtained by the current thread to observe the token until {@link #clearConsistencyToken()} is called.
+     */
+    public static void requireConsistencyToken(ConsistencyToken consistencyToken) {
+        CONSISTENCY_TOKEN.set(consistencyToken);
+    }
+
+    public static void clearConsistencyToken() {
+        CONSISTENCY_TOKEN.remove();
+    }
+
+    /**
+     * Give the current thread connections to the primary until {@link #clearPrimary()} is called.
+     */
+    public static void requirePrimary() {
+        PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimary() {
+        PRIMARY.remove();
+    }
+
+    /**
+     * Probe every replica at the given interval, ejecting the ones that don't respond and reinstating the ejected ones that do.
+     *
+     * @param intervalMillis time between two probes of a replica
+     */
+    public synchronized void startHealthChecks(long intervalMillis) {
+        if (healthChecks != null || replicas.isEmpty()) {
+            return;
+        }
+        healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the health checks and closes the data sources of the replicas, the primary is left open.
+     */
+    @Override
+    public synchronized void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+            healthChecks = null;
+        }
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) replica.getDataSource()).close();
+                } catch (Exception e) {
+                    LOG.warn("Unable to close replica {}", replica, e);
+                }
+            }
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PRIMARY.get() != null) {
+            return primary.getConnection();
+        }
+        ConsistencyToken consistencyToken = CONSISTENCY_TOKEN.get();
+        List<Replica> candidates = availableReplicas();
+        while (! candidates.isEmpty()) {
+            Replica replica = loadBalancer.choose(candidates);
+            candidates.remove(replica);
+            Connection connection;
+            try {
+                connection = replica.getConnection();
+            } catch (SQLException e) {
+                LOG.warn("Ejecting replica {} for {} ms, unable to obtain a connection", replica, ejectionMillis, e);
+                replica.eject(ejectionMillis, TimeUnit.MILLISECONDS);
+                continue;
+            }
+            if (consistencyToken == null || replica.hasReplayed(consistencyToken, connection)) {
+                return connection;
+            }
+            // Lagging behind the write the caller needs to see
+            connection.close();
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the credentials of their data source");
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean available = replica.isAvailable();
+            if (replica.probe(PROBE_TIMEOUT_SECONDS)) {
+                if (! available) {
+                    LOG.info("Reinstating replica {}, it responds again", replica);
+                    replica.reinstate();
+                }
+            } else {
+                if (available) {
+                    LOG.warn("Ejecting replica {} for {} ms, it doesn't respond", replica, ejectionMillis);
+                }
+                replica.eject(ejectionMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private List<Replica> availableReplicas() {
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.isAvailable()) {
+                available.add(replica);
+            }
+        }
+        return available;
+    }
+
+}
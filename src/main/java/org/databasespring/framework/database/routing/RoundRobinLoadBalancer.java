@@ -0,0 +1,18 @@
+package org.databasespring.framework.database.routing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Nonnull
+    @Override
+    public Replica choose(@Nonnull List<Replica> replicas) {
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+}
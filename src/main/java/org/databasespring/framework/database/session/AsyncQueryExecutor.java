@@ -0,0 +1,198 @@
+package org.databasespring.framework.database.session;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+
+/**
+ * Bounded executor for the asynchronous session methods. Size it to the connection pool, more threads than connections only wait for the pool.
+ * When all threads are busy and the queue is full, submitting waits up to the configured time for room and then fails the future, so a
+ * saturated database pushes back on the callers instead of queueing without limit.
+ * <p>
+ * Stages chained to the returned futures without an executor of their own run on the query threads, keep them short and never wait on
+ * another asynchronous operation from within one.
+ * <p>
+ * {@link #virtualThreads(int, long)} runs every operation on its own virtual thread when the JVM has them, only limiting how many run at the
+ * same time.
+ */
+public class AsyncQueryExecutor implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(AsyncQueryExecutor.class);
+
+    private static final int DEFAULT_THREADS = 10; // Default maximum pool size of Hikari
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 30000L;
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long maxWaitMillis;
+
+    /**
+     * @param threads number of operations running at the same time
+     * @param queueCapacity number of operations waiting for a thread
+     * @param maxWaitMillis how long submitting waits for room when the queue is full
+     */
+    public AsyncQueryExecutor(int threads, int queueCapacity, long maxWaitMillis) {
+        this(platformThreads(threads), false, threads + queueCapacity, maxWaitMillis);
+    }
+
+    private AsyncQueryExecutor(ExecutorService executor, boolean virtual, int maxPending, long maxWaitMillis) {
+        this.executor = executor;
+        this.virtual = virtual;
+        this.permits = new Semaphore(maxPending);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Executor starting a virtual thread per operation, falling back to a pool of platform threads on JVMs without virtual threads.
+     * {@link #submit(Callable)} never blocks the caller, operations beyond the concurrency wait as parked virtual threads for their turn rather
+     * than in the connection pool, so size it to the pool. Drivers that block inside {@code synchronized} blocks pin the carrier thread of a
+     * virtual thread, which the limit keeps bounded as well.
+     *
+     * @param concurrency number of operations running at the same time
+     * @param maxWaitMillis how long an operation waits for its turn when that many operations are running
+     * @return the executor
+     */
+    public static AsyncQueryExecutor virtualThreads(int concurrency, long maxWaitMillis) {
+        try {
+            // Looked up reflectively, the library is built for Java 8
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new AsyncQueryExecutor(executor, true, concurrency, maxWaitMillis);
+        } catch (ReflectiveOperationException e) {
+            LOG.info("Virtual threads are not available on Java {}, using {} platform threads", System.getProperty("java.version"), concurrency);
+            return new AsyncQueryExecutor(concurrency, 0, maxWaitMillis);
+        }
+    }
+
+    /**
+     * @return executor shared by the sessions that weren't given one, created on first use
+     */
+    public static AsyncQueryExecutor defaultExecutor() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Run the task on a query thread.
+     *
+     * @param task the blocking session call
+     * @param <T> type of the result
+     * @return future completed with the result of the task, or with the exception it threw
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (virtual) {
+            // Virtual threads are cheap to park, the thread waits for a permit instead of the caller
+            execute(future, () -> {
+                if (acquire(future)) {
+                    try {
+                        run(task, future);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } else if (acquire(future)) {
+            if (! execute(future, () -> {
+                try {
+                    run(task, future);
+                } finally {
+                    permits.release();
+                }
+            })) {
+                permits.release();
+            }
+        }
+        return future;
+    }
+
+    /**
+     * @return the number of operations running or waiting to run
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return whether operations run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private boolean acquire(CompletableFuture<?> future) {
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            future.completeExceptionally(new DatabaseException(DatabaseMessage.UNABLE_TO_SCHEDULE.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new DatabaseException(DatabaseMessage.UNABLE_TO_SCHEDULE, e));
+        }
+        return false;
+    }
+
+    private boolean execute(CompletableFuture<?> future, Runnable runnable) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            future.completeExceptionally(new DatabaseException(DatabaseMessage.UNABLE_TO_SCHEDULE, e));
+            return false;
+        }
+    }
+
+    private static <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        try {
+            future.complete(task.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static ExecutorService platformThreads(int threads) {
+        // The permits bound the queued operations, the queue itself doesn't need to
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "database-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class DefaultHolder {
+
+        private static final AsyncQueryExecutor INSTANCE = new AsyncQueryExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_WAIT_MILLIS);
+
+    }
+
+}
@@ -0,0 +1,251 @@
+package org.databasespring.framework.database.session;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+
+/**
+ * Independent selects sent to the database together. On PostgreSQL the selects are joined into one prepared statement, the driver sends them in
+ * one round trip and the result sets come back in order. Other databases run the selects one after the other on the same session.
+ * <p>
+ * The selects are mapped by MyBatis as usual, nested selects of a result map do cost a round trip of their own. Like custom sessions the
+ * pipeline is not reported to the {@link org.databasespring.framework.database.metrics.QueryMetrics}. On PostgreSQL the joined statement is
+ * prepared directly on the connection, statement handler interceptors such as the fetch size and statement reuse interceptors don't see it,
+ * parameter and result set handler interceptors do.
+ *
+ * <pre>
+ * Pipeline pipeline = readSession.pipeline();
+ * Pipeline.Result&lt;User&gt; user = pipeline.selectOne(User.class, "user.selectById", id);
+ * Pipeline.Result&lt;List&lt;Order&gt;&gt; orders = pipeline.selectList(Order.class, "order.selectByUser", id);
+ * pipeline.execute();
+ * </pre>
+ */
+public class Pipeline {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private final ReadSession readSession;
+    private final List<Entry<?>> entries = new ArrayList<>();
+
+    Pipeline(ReadSession readSession) {
+        this.readSession = readSession;
+    }
+
+    /**
+     * Queue a select of a single row.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return the result, available once the pipeline executed
+     */
+    public <T> Result<T> selectOne(@Nonnull Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) {
+        return add(statement, parameter, rows -> {
+            if (rows.size() > 1) {
+                throw new TooManyResultsException("Expected one result (or null) to be returned by selectOne(), but found: " + rows.size());
+            }
+            return rows.isEmpty() ? null : resultClazz.cast(rows.get(0));
+        });
+    }
+
+    /**
+     * Queue a select of a list of rows.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return the result, available once the pipeline executed
+     */
+    public <E> Result<List<E>> selectList(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) {
+        return add(statement, parameter, rows -> {
+            List<E> list = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                list.add(resultClazz.cast(row));
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Send the queued selects.
+     *
+     * @return the results in the order the selects were queued
+     * @throws DatabaseException when one of the selects fails
+     */
+    public List<Object> execute() throws DatabaseException {
+        return readSession.custom(this::execute);
+    }
+
+    private <T> Result<T> add(String statement, Object parameter, Function<List<Object>, T> mapper) {
+        Entry<T> entry = new Entry<>(statement, parameter, mapper);
+        entries.add(entry);
+        return entry.result;
+    }
+
+    private List<Object> execute(SqlSession sqlSession) throws DatabaseException {
+        List<MappedStatement> mappedStatements = mappedStatements(sqlSession.getConfiguration());
+        try {
+            Connection connection = sqlSession.getConnection();
+            if (entries.size() > 1 && POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName())) {
+                executePipelined(sqlSession.getConfiguration(), mappedStatements, connection);
+            } else {
+                for (Entry<?> entry : entries) {
+                    entry.complete(sqlSession.selectList(entry.statement, entry.parameter));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
+        }
+
+        List<Object> results = new ArrayList<>(entries.size());
+        for (Entry<?> entry : entries) {
+            results.add(entry.result.get());
+        }
+        return results;
+    }
+
+    /**
+     * @throws DatabaseException when a statement is unknown or not a select
+     */
+    private List<MappedStatement> mappedStatements(Configuration configuration) throws DatabaseException {
+        List<MappedStatement> mappedStatements = new ArrayList<>(entries.size());
+        for (Entry<?> entry : entries) {
+            MappedStatement mappedStatement;
+            try {
+                mappedStatement = configuration.getMappedStatement(entry.statement);
+            } catch (IllegalArgumentException e) {
+                throw new DatabaseException("Unknown statement", entry.statement);
+            }
+            if (mappedStatement.getSqlCommandType() != SqlCommandType.SELECT) {
+                throw new DatabaseException("Only selects can be pipelined, not a " + mappedStatement.getSqlCommandType(), entry.statement);
+            }
+            mappedStatements.add(mappedStatement);
+        }
+        return mappedStatements;
+    }
+
+    private void executePipelined(Configuration configuration, List<MappedStatement> mappedStatements, Connection connection) throws SQLException {
+        List<BoundSql> boundSqls = new ArrayList<>(entries.size());
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            BoundSql boundSql = mappedStatements.get(i).getBoundSql(entries.get(i).parameter);
+            boundSqls.add(boundSql);
+            sql.append(trimSemicolon(boundSql.getSql())).append(";\n");
+        }
+
+        // The executor only serves nested selects of result maps, its transaction leaves the connection of the session open
+        Executor executor = configuration.newExecutor(new JdbcTransaction(connection) {
+            @Override
+            public void close() {
+                // The session closes the connection
+            }
+        });
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+            List<ParameterHandler> parameterHandlers = new ArrayList<>(entries.size());
+            int offset = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                ParameterHandler parameterHandler = configuration.newParameterHandler(mappedStatements.get(i), entries.get(i).parameter, boundSqls.get(i));
+                parameterHandler.setParameters(offsetting(preparedStatement, offset));
+                parameterHandlers.add(parameterHandler);
+                offset += boundSqls.get(i).getParameterMappings().size();
+            }
+
+            preparedStatement.execute();
+            // Every handler maps the current result set and moves the statement on to the next one
+            for (int i = 0; i < entries.size(); i++) {
+                entries.get(i).complete(configuration.newResultSetHandler(executor, mappedStatements.get(i), RowBounds.DEFAULT, parameterHandlers.get(i), null,
+                    boundSqls.get(i)).handleResultSets(preparedStatement));
+            }
+        } finally {
+            executor.close(false);
+        }
+    }
+
+    private static String trimSemicolon(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.endsWith(";") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    /**
+     * Parameter handlers number the parameters of their statement from 1, shift them to the position of the statement in the joined SQL.
+     */
+    private static PreparedStatement offsetting(PreparedStatement preparedStatement, int offset) {
+        if (offset == 0) {
+            return preparedStatement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set") && args != null && args[0] instanceof Integer) {
+                args[0] = (Integer) args[0] + offset;
+            }
+            try {
+                return method.invoke(preparedStatement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    /**
+     * Result of a queued select, available once the pipeline executed.
+     */
+    public static final class Result<T> {
+
+        private boolean done;
+        private T value;
+
+        private Result() {
+        }
+
+        /**
+         * @return the mapped result of the select
+         * @throws IllegalStateException when the pipeline did not execute yet
+         */
+        public T get() {
+            if (! done) {
+                throw new IllegalStateException("The pipeline did not execute yet");
+            }
+            return value;
+        }
+
+    }
+
+    private static final class Entry<T> {
+
+        private final String statement;
+        private final Object parameter;
+        private final Function<List<Object>, T> mapper;
+        private final Result<T> result = new Result<>();
+
+        private Entry(String statement, Object parameter, Function<List<Object>, T> mapper) {
+            this.statement = statement;
+            this.parameter = parameter;
+            this.mapper = mapper;
+        }
+
+        private void complete(List<Object> rows) {
+            result.value = mapper.apply(rows);
+            result.done = true;
+        }
+
+    }
+
+}
@@ -1,34 +1,91 @@
 package org.databasespring.framework.database.session;
 
-import java.security.AccessController;
-import java.security.PrivilegedActionException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.security.PrivilegedExceptionAction;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.collection.LongObjectMap;
+import org.databasespring.framework.database.cache.QueryCache;
+import org.databasespring.framework.database.cache.ResultLoader;
+import org.databasespring.framework.database.cache.SingleFlight;
 import org.databasespring.framework.database.connection.ReadConnection;
 import org.databasespring.framework.database.exception.DatabaseException;
 import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.exception.UncheckedDatabaseException;
+import org.databasespring.framework.database.routing.ConsistencyToken;
+import org.databasespring.framework.database.routing.ReplicaRoutingDataSource;
+import org.databasespring.framework.database.session.export.ExportFormat;
+import org.databasespring.framework.database.session.operation.QueryOperationRunner;
+import org.databasespring.framework.database.session.operation.read.ExportQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectCursorQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectHandlerQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectKeysetPageQueryOperation;
 import org.databasespring.framework.database.session.operation.read.SelectListQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectLongMapQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectMapQueryOperation;
 import org.databasespring.framework.database.session.operation.read.SelectOneQueryOperation;
+import org.databasespring.framework.database.session.page.KeysetPage;
+import org.databasespring.framework.database.session.page.KeysetParameter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ReadSession implements DatabaseSession {
 
     private final ReadConnection databaseConnection;
+    private final ConsistencyToken consistencyToken;
+    private final AsyncQueryExecutor asyncQueryExecutor;
 
     public ReadSession(ReadConnection connection) {
+        this(connection, (AsyncQueryExecutor) null);
+    }
+
+    /**
+     * @param asyncQueryExecutor executor of the asynchronous methods, the {@link AsyncQueryExecutor#defaultExecutor()} when null
+     */
+    @Autowired
+    public ReadSession(ReadConnection connection, @Nullable AsyncQueryExecutor asyncQueryExecutor) {
+        this(connection, null, asyncQueryExecutor);
+    }
+
+    private ReadSession(ReadConnection connection, ConsistencyToken consistencyToken, AsyncQueryExecutor asyncQueryExecutor) {
         this.databaseConnection = connection;
+        this.consistencyToken = consistencyToken;
+        this.asyncQueryExecutor = asyncQueryExecutor;
+    }
+
+    /**
+     * Read your own writes. Statements of the returned session only use a replica that replayed the log up to the token, otherwise the
+     * primary.
+     *
+     * @param consistencyToken position returned by {@link WriteSession#consistencyToken()} after the write
+     * @return a session observing the token
+     */
+    public ReadSession observing(@Nonnull ConsistencyToken consistencyToken) {
+        return new ReadSession(databaseConnection, consistencyToken, asyncQueryExecutor);
     }
+
     /**
      * Retrieve a single row mapped from the statement key.
      *
@@ -46,16 +103,8 @@ public class ReadSession implements DatabaseSession {
      * @return Mapped object
      */
     public <T> T selectOne(Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
-        try {
-            SelectOneQueryOperation<T> selectOneQueryOperation = new SelectOneQueryOperation<>(resultClazz, statement, parameter, databaseConnection);
-            return AccessController.doPrivileged(selectOneQueryOperation);
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                // re-throw the exception but as DatabaseException
-                throw (DatabaseException) e.getException();
-            }
-            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
-        }
+        SelectOneQueryOperation<T> selectOneQueryOperation = new SelectOneQueryOperation<>(resultClazz, statement, parameter, databaseConnection);
+        return shared("one", resultClazz, statement, parameter, null, () -> run(selectOneQueryOperation));
     }
 
     /**
@@ -88,16 +137,101 @@ public class ReadSession implements DatabaseSession {
      * @return List of mapped object
      */
     public <E> List<E> selectList(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds) throws DatabaseException {
-        try {
-            SelectListQueryOperation<E> selectOneQueryOperation = new SelectListQueryOperation<>(resultClazz, statement, parameter, rowBounds, databaseConnection);
-            return AccessController.doPrivileged(selectOneQueryOperation);
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                // re-throw the exception but as DatabaseException
-                throw (DatabaseException) e.getException();
+        SelectListQueryOperation<E> selectOneQueryOperation = new SelectListQueryOperation<>(resultClazz, statement, parameter, rowBounds, databaseConnection);
+        return shared("list", resultClazz, statement, parameter, rowBounds, () -> run(selectOneQueryOperation));
+    }
+
+    /**
+     * Retrieve a page of mapped objects by keyset pagination. The statement receives a {@link KeysetParameter} and must filter on the sort key
+     * after {@code #{after}} when it is set, order by the sort key and limit the rows to {@code #{limit}}.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement as {@code #{parameter}}.
+     * @param sortKey Property of the mapped objects holding the unique sort key.
+     * @param pageToken Token of the previous page, null for the first page.
+     * @param pageSize Maximum number of objects on the page.
+     * @return the page, with the token of the next page unless it is the last
+     * @throws DatabaseException when the query fails or the page size is not positive, with {@link DatabaseMessage#INVALID_PAGE_TOKEN} when the
+     * page token is not valid
+     */
+    public <E> KeysetPage<E> selectPage(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @Nonnull String sortKey,
+        @CheckForNull String pageToken, int pageSize) throws DatabaseException {
+        SelectKeysetPageQueryOperation<E> selectKeysetPageQueryOperation = new SelectKeysetPageQueryOperation<>(resultClazz, statement, parameter, sortKey,
+            pageToken, pageSize, databaseConnection);
+        return run(selectKeysetPageQueryOperation);
+    }
+
+    /**
+     * Lazily page through all mapped objects by keyset pagination, see {@link #selectPage(Class, String, Object, String, String, int)}. A page is
+     * only selected when the stream reaches it, each in its own session.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement as {@code #{parameter}}.
+     * @param sortKey Property of the mapped objects holding the unique sort key.
+     * @param pageSize Maximum number of objects per page.
+     * @return stream of the pages, a failing select throws an {@link UncheckedDatabaseException}
+     */
+    public <E> Stream<KeysetPage<E>> pages(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @Nonnull String sortKey,
+        int pageSize) {
+        Iterator<KeysetPage<E>> iterator = new Iterator<KeysetPage<E>>() {
+
+            private KeysetPage<E> previous;
+
+            @Override
+            public boolean hasNext() {
+                return previous == null || previous.hasNext();
             }
-            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
-        }
+
+            @Override
+            public KeysetPage<E> next() {
+                if (! hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    previous = selectPage(resultClazz, statement, parameter, sortKey, previous != null ? previous.getNextPageToken() : null, pageSize);
+                    return previous;
+                } catch (DatabaseException e) {
+                    throw new UncheckedDatabaseException(e);
+                }
+            }
+
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Asynchronous {@link #selectOne(Class, String, Object)}, runs on the {@link AsyncQueryExecutor} so independent selects overlap.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return future of the mapped object, completed exceptionally with the {@link DatabaseException} when the select fails
+     */
+    public <T> CompletableFuture<T> selectOneAsync(Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) {
+        return async().submit(() -> selectOne(resultClazz, statement, parameter));
+    }
+
+    /**
+     * Asynchronous {@link #selectList(Class, String, Object)}, runs on the {@link AsyncQueryExecutor} so independent selects overlap.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return future of the list of mapped objects, completed exceptionally with the {@link DatabaseException} when the select fails
+     */
+    public <E> CompletableFuture<List<E>> selectListAsync(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) {
+        return selectListAsync(resultClazz, statement, parameter, null);
+    }
+
+    /**
+     * Asynchronous {@link #selectList(Class, String, Object, RowBounds)}, runs on the {@link AsyncQueryExecutor} so independent selects overlap.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds Bounds to limit object retrieval
+     * @return future of the list of mapped objects, completed exceptionally with the {@link DatabaseException} when the select fails
+     */
+    public <E> CompletableFuture<List<E>> selectListAsync(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter,
+        @CheckForNull RowBounds rowBounds) {
+        return async().submit(() -> selectList(resultClazz, statement, parameter, rowBounds));
     }
 
     /**
@@ -108,8 +242,8 @@ public class ReadSession implements DatabaseSession {
      * @param mapKey The property to use as key for each value in the list.
      * @return Map containing key pair data.
      */
-    public <K, V> Map<K, V> selectMap(String statement, String mapKey) {
-        return null;
+    public <K, V> Map<K, V> selectMap(@Nonnull String statement, @Nonnull String mapKey) throws DatabaseException {
+        return selectMap(statement, null, mapKey);
     }
 
     /**
@@ -120,12 +254,13 @@ public class ReadSession implements DatabaseSession {
      * @param mapKey The property to use as key for each value in the list.
      * @return Map containing key pair data.
      */
-    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey) {
-        return null;
+    public <K, V> Map<K, V> selectMap(@Nonnull String statement, @CheckForNull Object parameter, @Nonnull String mapKey) throws DatabaseException {
+        return selectMap(statement, parameter, mapKey, null);
     }
 
     /**
      * The selectMap is a special case in that it is designed to convert a list of results into a Map based on one of the properties in the resulting objects.
+     * The map is filled while the rows are read, without collecting them in a list first.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param parameter A parameter object to pass to the statement.
@@ -133,77 +268,182 @@ public class ReadSession implements DatabaseSession {
      * @param rowBounds Bounds to limit object retrieval
      * @return Map containing key pair data.
      */
-    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds) {
-        return null;
+    public <K, V> Map<K, V> selectMap(@Nonnull String statement, @CheckForNull Object parameter, @Nonnull String mapKey, @CheckForNull RowBounds rowBounds) throws DatabaseException {
+        SelectMapQueryOperation<K, V> selectMapQueryOperation = new SelectMapQueryOperation<>(statement, parameter, mapKey, rowBounds, databaseConnection.getFetchSize(), databaseConnection);
+        return run(selectMapQueryOperation);
     }
 
     /**
-     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+     * Same as {@link #selectMap(String, Object, String)} for a {@code long} or {@code int} key property, the keys are stored as primitives instead of
+     * boxed objects.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param mapKey The numeric property to use as key for each value in the list.
+     * @return Map containing key pair data.
+     */
+    public <V> LongObjectMap<V> selectLongMap(@Nonnull Class<V> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @Nonnull String mapKey)
+        throws DatabaseException {
+        return selectLongMap(resultClazz, statement, parameter, mapKey, null);
+    }
+
+    /**
+     * Same as {@link #selectMap(String, Object, String, RowBounds)} for a {@code long} or {@code int} key property, the keys are stored as primitives
+     * instead of boxed objects.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param mapKey The numeric property to use as key for each value in the list.
+     * @param rowBounds Bounds to limit object retrieval
+     * @return Map containing key pair data.
+     */
+    public <V> LongObjectMap<V> selectLongMap(@Nonnull Class<V> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @Nonnull String mapKey,
+        @CheckForNull RowBounds rowBounds) throws DatabaseException {
+        SelectLongMapQueryOperation<V> selectLongMapQueryOperation = new SelectLongMapQueryOperation<>(resultClazz, statement, parameter, mapKey, rowBounds,
+            databaseConnection.getFetchSize(), databaseConnection);
+        return run(selectLongMapQueryOperation);
+    }
+
+    /**
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator. The cursor holds on to its session and must be
+     * closed or fully consumed.
      *
      * @param statement Unique identifier matching the statement to use.
      * @return Cursor of mapped objects
      */
-    public <T> Cursor<T> selectCursor(String statement) {
-        return null;
+    public <T> Cursor<T> selectCursor(@Nonnull String statement) throws DatabaseException {
+        return selectCursor(statement, null);
     }
 
     /**
-     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator. The cursor holds on to its session and must be
+     * closed or fully consumed.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param parameter A parameter object to pass to the statement.
      * @return Cursor of mapped objects
      */
-    public <T> Cursor<T> selectCursor(String statement, Object parameter) {
-        return null;
+    public <T> Cursor<T> selectCursor(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
+        return selectCursor(statement, parameter, null);
     }
 
     /**
-     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator. The cursor holds on to its session and must be
+     * closed or fully consumed.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param parameter A parameter object to pass to the statement.
      * @param rowBounds Bounds to limit object retrieval
      * @return Cursor of mapped objects
      */
-    public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
-        return null;
+    public <T> Cursor<T> selectCursor(@Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds) throws DatabaseException {
+        return selectCursor(statement, parameter, rowBounds, databaseConnection.getFetchSize());
     }
 
     /**
-     * Retrieve a single row mapped from the statement key and parameter using a {@code ResultHandler}.
+     * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator. The cursor holds on to its session and must be
+     * closed or fully consumed.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds Bounds to limit object retrieval
+     * @param fetchSize Number of rows the driver fetches per round trip
+     * @return Cursor of mapped objects
+     */
+    public <T> Cursor<T> selectCursor(@Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds, int fetchSize) throws DatabaseException {
+        SelectCursorQueryOperation<T> selectCursorQueryOperation = new SelectCursorQueryOperation<>(statement, parameter, rowBounds, fetchSize, databaseConnection);
+        return run(selectCursorQueryOperation);
+    }
+
+    /**
+     * Retrieve the rows mapped from the statement key and parameter using a {@code ResultHandler}, rows are pushed one at a time without being
+     * collected.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param parameter A parameter object to pass to the statement.
      * @param handler ResultHandler that will handle each retrieved row
+     * @return the number of rows that were handled
      */
-    public void select(String statement, Object parameter, ResultHandler<?> handler) {
-        // TODO: implement
+    public int select(@Nonnull String statement, @CheckForNull Object parameter, @Nonnull ResultHandler<?> handler) throws DatabaseException {
+        return select(statement, parameter, null, handler);
     }
 
     /**
-     * Retrieve a single row mapped from the statement using a {@code ResultHandler}.
+     * Retrieve the rows mapped from the statement using a {@code ResultHandler}, rows are pushed one at a time without being collected.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param handler ResultHandler that will handle each retrieved row
+     * @return the number of rows that were handled
      */
-    public void select(String statement, ResultHandler<?> handler) {
-        // TODO: implement
+    public int select(@Nonnull String statement, @Nonnull ResultHandler<?> handler) throws DatabaseException {
+        return select(statement, null, null, handler);
     }
 
     /**
-     * Retrieve a single row mapped from the statement key and parameter using a {@code ResultHandler} and {@code RowBounds}.
+     * Retrieve the rows mapped from the statement key and parameter using a {@code ResultHandler} and {@code RowBounds}, rows are pushed one at a
+     * time without being collected.
      *
      * @param statement Unique identifier matching the statement to use.
      * @param rowBounds RowBound instance to limit the query results
      * @param handler ResultHandler that will handle each retrieved row
+     * @return the number of rows that were handled
+     */
+    public int select(@Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds, @Nonnull ResultHandler<?> handler) throws DatabaseException {
+        return select(statement, parameter, rowBounds, databaseConnection.getFetchSize(), handler);
+    }
+
+    /**
+     * Retrieve the rows mapped from the statement key and parameter using a {@code ResultHandler} and {@code RowBounds}, rows are pushed one at a
+     * time without being collected. The handler can stop the query early through {@code ResultContext.stop()}.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param rowBounds RowBound instance to limit the query results
+     * @param fetchSize Number of rows the driver fetches per round trip
+     * @param handler ResultHandler that will handle each retrieved row
+     * @return the number of rows that were handled
+     */
+    public int select(@Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds, int fetchSize, @Nonnull ResultHandler<?> handler)
+        throws DatabaseException {
+        SelectHandlerQueryOperation selectHandlerQueryOperation = new SelectHandlerQueryOperation(statement, parameter, rowBounds, fetchSize, handler, databaseConnection);
+        return run(selectHandlerQueryOperation);
+    }
+
+    /**
+     * Stream the rows mapped from the statement key and parameter into the row handler, the query stops as soon as the handler returns
+     * {@code false}.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowHandler Handler receiving each mapped row
+     * @return the number of rows that were handled
      */
-    public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler<?> handler) {
-        // TODO: implement
+    public <T> int forEach(@Nonnull Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @Nonnull RowHandler<T> rowHandler) throws DatabaseException {
+        return forEach(resultClazz, statement, parameter, databaseConnection.getFetchSize(), rowHandler);
     }
 
     /**
-     * Execute a custom query, for instance to apply multiple queries in the same session
+     * Stream the rows mapped from the statement key and parameter into the row handler, the query stops as soon as the handler returns
+     * {@code false}.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param fetchSize Number of rows the driver fetches per round trip
+     * @param rowHandler Handler receiving each mapped row
+     * @return the number of rows that were handled
+     */
+    public <T> int forEach(@Nonnull Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, int fetchSize, @Nonnull RowHandler<T> rowHandler)
+        throws DatabaseException {
+        return select(statement, parameter, null, fetchSize, resultContext -> {
+            if (! rowHandler.handle(resultClazz.cast(resultContext.getResultObject()))) {
+                resultContext.stop();
+            }
+        });
+    }
+
+    /**
+     * Execute a custom query, for instance to apply multiple queries in the same session. On a
+     * {@link org.apache.ibatis.session.ExecutorType#REUSE} view of the connection the session prepares each statement once and reuses it, read a
+     * cursor to the end before running its statement again in the same session.
      *
      * @param customSessionManager that is to be executed, ususally lambda function
      * @param <T> class type that should be returned
@@ -211,19 +451,116 @@ public class ReadSession implements DatabaseSession {
      * @throws DatabaseException when unable to execute the query
      */
     public <T> T custom(@Nonnull CustomSessionManager<T> customSessionManager) throws DatabaseException {
-        try {
-            return AccessController.doPrivileged((PrivilegedExceptionAction<T>) () -> {
-                try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit())) {
-                    return customSessionManager.apply(sqlSession);
-                } catch (PersistenceException e) {
-                    throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
-                }
-            });
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                throw (DatabaseException) e.getException();
+        return run(() -> {
+            try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit())) {
+                return customSessionManager.apply(sqlSession);
+            } catch (PersistenceException e) {
+                throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
             }
-            throw new DatabaseException("Unknown exception type", e);
+        });
+    }
+
+    /**
+     * Export the rows of a select as CSV or NDJSON, written while they are read from the database. Memory use stays at a few buffers whatever the
+     * number of rows. The column labels of the select are used as CSV header and JSON keys.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param exportFormat Format to write the rows in.
+     * @param outputStream Destination of the export, flushed but not closed.
+     * @return the number of rows exported
+     */
+    public long export(@Nonnull String statement, @CheckForNull Object parameter, @Nonnull ExportFormat exportFormat, @Nonnull OutputStream outputStream)
+        throws DatabaseException {
+        WritableByteChannel channel = outputStream instanceof FileOutputStream ? ((FileOutputStream) outputStream).getChannel() : Channels.newChannel(outputStream);
+        long rows = export(statement, parameter, exportFormat, channel);
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new DatabaseException("Unable to flush the export", statement, e);
+        }
+        return rows;
+    }
+
+    /**
+     * Export the rows of a select as CSV or NDJSON, written while they are read from the database. Memory use stays at a few buffers whatever the
+     * number of rows. The column labels of the select are used as CSV header and JSON keys.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param exportFormat Format to write the rows in.
+     * @param channel Destination of the export, not closed.
+     * @return the number of rows exported
+     */
+    public long export(@Nonnull String statement, @CheckForNull Object parameter, @Nonnull ExportFormat exportFormat, @Nonnull WritableByteChannel channel)
+        throws DatabaseException {
+        ExportQueryOperation exportQueryOperation = new ExportQueryOperation(statement, parameter, databaseConnection.getFetchSize(), exportFormat, channel,
+            databaseConnection);
+        return run(exportQueryOperation);
+    }
+
+    /**
+     * Start a pipeline of independent selects that are sent to the database together, saving a round trip per select.
+     *
+     * @return an empty pipeline
+     */
+    public Pipeline pipeline() {
+        return new Pipeline(this);
+    }
+
+    /**
+     * Asynchronous {@link #custom(CustomSessionManager)}, runs on the {@link AsyncQueryExecutor}.
+     *
+     * @param customSessionManager that is to be executed, usually lambda function
+     * @param <T> class type that should be returned
+     * @return future of the result, completed exceptionally with the {@link DatabaseException} when the query fails
+     */
+    public <T> CompletableFuture<T> customAsync(@Nonnull CustomSessionManager<T> customSessionManager) {
+        return async().submit(() -> custom(customSessionManager));
+    }
+
+    private AsyncQueryExecutor async() {
+        return asyncQueryExecutor != null ? asyncQueryExecutor : AsyncQueryExecutor.defaultExecutor();
+    }
+
+    /**
+     * Share results through the cache and between identical selects in flight. Reads observing a consistency token don't share, a shared result
+     * may be older than the token.
+     */
+    private <T> T shared(String kind, Class<?> resultClazz, String statement, Object parameter, RowBounds rowBounds, ResultLoader<T> loader)
+        throws DatabaseException {
+        if (consistencyToken != null) {
+            return loader.load();
+        }
+        QueryCache queryCache = databaseConnection.getQueryCache();
+        ResultLoader<T> routedLoader = queryCache != null && queryCache.isLoadedFromPrimary(statement) ? () -> fromPrimary(loader) : loader;
+        SingleFlight singleFlight = databaseConnection.getSingleFlight();
+        ResultLoader<T> coalescedLoader = singleFlight == null ? routedLoader
+            : () -> singleFlight.execute(kind, resultClazz, statement, parameter, rowBounds, routedLoader);
+        return queryCache == null ? coalescedLoader.load() : queryCache.get(kind, resultClazz, statement, parameter, rowBounds, coalescedLoader);
+    }
+
+    /**
+     * Load from the primary, a replica may not have replayed the write that just invalidated the cached result.
+     */
+    private static <T> T fromPrimary(ResultLoader<T> loader) throws DatabaseException {
+        ReplicaRoutingDataSource.requirePrimary();
+        try {
+            return loader.load();
+        } finally {
+            ReplicaRoutingDataSource.clearPrimary();
+        }
+    }
+
+    private <T> T run(PrivilegedExceptionAction<T> action) throws DatabaseException {
+        if (consistencyToken == null) {
+            return QueryOperationRunner.run(action, databaseConnection.isPrivileged());
+        }
+        ReplicaRoutingDataSource.requireConsistencyToken(consistencyToken);
+        try {
+            return QueryOperationRunner.run(action, databaseConnection.isPrivileged());
+        } finally {
+            ReplicaRoutingDataSource.clearConsistencyToken();
         }
     }
 
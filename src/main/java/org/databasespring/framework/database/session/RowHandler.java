@@ -0,0 +1,11 @@
+package org.databasespring.framework.database.session;
+
+/**
+ * Receives streamed rows one at a time, returning {@code false} stops the query without reading the remaining rows.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    boolean handle(T row);
+
+}
@@ -0,0 +1,10 @@
+package org.databasespring.framework.database.session;
+
+import org.databasespring.framework.database.exception.DatabaseException;
+
+@FunctionalInterface
+public interface TransactionCallback<T> {
+
+    T apply(TransactionScope transactionScope) throws DatabaseException;
+
+}
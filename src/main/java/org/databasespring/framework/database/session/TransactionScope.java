@@ -0,0 +1,109 @@
+package org.databasespring.framework.database.session;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.operation.read.SelectListQueryOperation;
+import org.databasespring.framework.database.session.operation.read.SelectOneQueryOperation;
+import org.databasespring.framework.database.session.operation.write.DeleteQueryOperation;
+import org.databasespring.framework.database.session.operation.write.InsertQueryOperation;
+import org.databasespring.framework.database.session.operation.write.UpdateQueryOperation;
+
+/**
+ * Statements executed within {@link WriteSession#inTransaction(TransactionCallback)}, they all share one session and JDBC connection and are
+ * committed together.
+ */
+public class TransactionScope {
+
+    private final SqlSession sqlSession;
+    private final DatabaseConnection databaseConnection;
+    private final Set<String> writtenStatements = new LinkedHashSet<>();
+
+    TransactionScope(SqlSession sqlSession, DatabaseConnection databaseConnection) {
+        this.sqlSession = sqlSession;
+        this.databaseConnection = databaseConnection;
+    }
+
+    /**
+     * Execute an insert statement with the given parameter object.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the insert.
+     */
+    public int insert(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
+        writtenStatements.add(statement);
+        return new InsertQueryOperation(statement, parameter, databaseConnection).execute(sqlSession);
+    }
+
+    /**
+     * Execute an update statement. The number of rows affected will be returned.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the update.
+     */
+    public int update(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
+        writtenStatements.add(statement);
+        return new UpdateQueryOperation(statement, parameter, databaseConnection).execute(sqlSession);
+    }
+
+    /**
+     * Execute a delete statement. The number of rows affected will be returned.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return int The number of rows affected by the delete.
+     */
+    public int delete(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
+        writtenStatements.add(statement);
+        return new DeleteQueryOperation(statement, parameter, databaseConnection).execute(sqlSession);
+    }
+
+    /**
+     * Retrieve a single row mapped from the statement key and parameter, seeing the uncommitted changes of this transaction.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return Mapped object
+     */
+    public <T> T selectOne(@Nonnull Class<T> resultClazz, @Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
+        return new SelectOneQueryOperation<>(resultClazz, statement, parameter, databaseConnection).execute(sqlSession);
+    }
+
+    /**
+     * Retrieve a list of mapped objects from the statement key and parameter, seeing the uncommitted changes of this transaction.
+     *
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds Bounds to limit object retrieval
+     * @return List of mapped object
+     */
+    public <E> List<E> selectList(@Nonnull Class<E> resultClazz, @Nonnull String statement, @CheckForNull Object parameter, @CheckForNull RowBounds rowBounds)
+        throws DatabaseException {
+        return new SelectListQueryOperation<>(resultClazz, statement, parameter, rowBounds, databaseConnection).execute(sqlSession);
+    }
+
+    /**
+     * @return the session of the transaction, for statements not covered by this scope
+     */
+    public SqlSession getSqlSession() {
+        return sqlSession;
+    }
+
+    /**
+     * @return the insert, update and delete statements executed in the transaction
+     */
+    Set<String> getWrittenStatements() {
+        return writtenStatements;
+    }
+
+}
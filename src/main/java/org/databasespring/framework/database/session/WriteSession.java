@@ -1,29 +1,55 @@
 package org.databasespring.framework.database.session;
 
-import java.security.AccessController;
-import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.cache.QueryCache;
+import org.databasespring.framework.database.cache.SingleFlight;
 import org.databasespring.framework.database.connection.WriteConnection;
 import org.databasespring.framework.database.exception.DatabaseException;
 import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.routing.ConsistencyToken;
+import org.databasespring.framework.database.session.copy.CopyMapping;
+import org.databasespring.framework.database.session.operation.QueryOperationRunner;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+import org.databasespring.framework.database.session.operation.write.BatchQueryOperation;
+import org.databasespring.framework.database.session.operation.write.BatchSettings;
+import org.databasespring.framework.database.session.operation.write.CopyInQueryOperation;
 import org.databasespring.framework.database.session.operation.write.DeleteQueryOperation;
 import org.databasespring.framework.database.session.operation.write.InsertQueryOperation;
 import org.databasespring.framework.database.session.operation.write.UpdateQueryOperation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class WriteSession implements DatabaseSession {
 
     private final WriteConnection databaseConnection;
+    private final AsyncQueryExecutor asyncQueryExecutor;
 
     public WriteSession(WriteConnection databaseConnection) {
+        this(databaseConnection, null);
+    }
+
+    /**
+     * @param asyncQueryExecutor executor of the asynchronous methods, the {@link AsyncQueryExecutor#defaultExecutor()} when null
+     */
+    @Autowired
+    public WriteSession(WriteConnection databaseConnection, @Nullable AsyncQueryExecutor asyncQueryExecutor) {
         this.databaseConnection = databaseConnection;
+        this.asyncQueryExecutor = asyncQueryExecutor;
     }
 
     /**
@@ -45,20 +71,9 @@ public class WriteSession implements DatabaseSession {
      * @return int The number of rows affected by the insert.
      */
     public int insert(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
-        if (! databaseConnection.isAutoCommit()) {
-            throw new DatabaseException("Unable to execute, not autocommit");
-        }
-
-        try {
-            InsertQueryOperation insertQueryOperation = new InsertQueryOperation(statement, parameter, databaseConnection);
-            return AccessController.doPrivileged(insertQueryOperation);
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                // re-throw the exception but as DatabaseException
-                throw (DatabaseException) e.getException();
-            }
-            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
-        }
+        checkNotBatching(statement);
+        InsertQueryOperation insertQueryOperation = new InsertQueryOperation(statement, parameter, databaseConnection);
+        return invalidating(statement, QueryOperationRunner.run(insertQueryOperation, databaseConnection.isPrivileged()));
     }
 
     /**
@@ -79,20 +94,9 @@ public class WriteSession implements DatabaseSession {
      * @return int The number of rows affected by the update.
      */
     public int update(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
-        if (! databaseConnection.isAutoCommit()) {
-            throw new DatabaseException("Unable to execute update, not autocommit");
-        }
-
-        try {
-            UpdateQueryOperation updateQueryOperation = new UpdateQueryOperation(statement, parameter, databaseConnection);
-            return AccessController.doPrivileged(updateQueryOperation);
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                // re-throw the exception but as DatabaseException
-                throw (DatabaseException) e.getException();
-            }
-            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
-        }
+        checkNotBatching(statement);
+        UpdateQueryOperation updateQueryOperation = new UpdateQueryOperation(statement, parameter, databaseConnection);
+        return invalidating(statement, QueryOperationRunner.run(updateQueryOperation, databaseConnection.isPrivileged()));
     }
 
     /**
@@ -113,24 +117,243 @@ public class WriteSession implements DatabaseSession {
      * @return int The number of rows affected by the delete.
      */
     public int delete(@Nonnull String statement, @CheckForNull Object parameter) throws DatabaseException {
-        if (! databaseConnection.isAutoCommit()) {
-            throw new DatabaseException("Unable to execute, not autocommit");
+        checkNotBatching(statement);
+        DeleteQueryOperation updateQueryOperation = new DeleteQueryOperation(statement, parameter, databaseConnection);
+        return invalidating(statement, QueryOperationRunner.run(updateQueryOperation, databaseConnection.isPrivileged()));
+    }
+
+    /**
+     * Asynchronous {@link #insert(String, Object)}, runs on the {@link AsyncQueryExecutor}.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return future of the number of rows affected, completed exceptionally with the {@link DatabaseException} when the insert fails
+     */
+    public CompletableFuture<Integer> insertAsync(@Nonnull String statement, @CheckForNull Object parameter) {
+        return async().submit(() -> insert(statement, parameter));
+    }
+
+    /**
+     * Asynchronous {@link #update(String, Object)}, runs on the {@link AsyncQueryExecutor}.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return future of the number of rows affected, completed exceptionally with the {@link DatabaseException} when the update fails
+     */
+    public CompletableFuture<Integer> updateAsync(@Nonnull String statement, @CheckForNull Object parameter) {
+        return async().submit(() -> update(statement, parameter));
+    }
+
+    /**
+     * Asynchronous {@link #delete(String, Object)}, runs on the {@link AsyncQueryExecutor}.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameter A parameter object to pass to the statement.
+     * @return future of the number of rows affected, completed exceptionally with the {@link DatabaseException} when the delete fails
+     */
+    public CompletableFuture<Integer> deleteAsync(@Nonnull String statement, @CheckForNull Object parameter) {
+        return async().submit(() -> delete(statement, parameter));
+    }
+
+    /**
+     * Execute an insert statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @return int[] The number of rows affected by each insert, in the order of the parameters.
+     */
+    public int[] insertAll(@Nonnull String statement, @Nonnull Collection<?> parameters) throws DatabaseException {
+        return insertAll(statement, parameters, BatchSettings.DEFAULT);
+    }
+
+    /**
+     * Execute an insert statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @param batchSettings Thresholds at which queued statements are sent to the database.
+     * @return int[] The number of rows affected by each insert, in the order of the parameters.
+     */
+    public int[] insertAll(@Nonnull String statement, @Nonnull Collection<?> parameters, @Nonnull BatchSettings batchSettings) throws DatabaseException {
+        return batch(BatchQueryOperation.Type.INSERT, statement, parameters, batchSettings);
+    }
+
+    /**
+     * Execute an update statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @return int[] The number of rows affected by each update, in the order of the parameters.
+     */
+    public int[] updateAll(@Nonnull String statement, @Nonnull Collection<?> parameters) throws DatabaseException {
+        return updateAll(statement, parameters, BatchSettings.DEFAULT);
+    }
+
+    /**
+     * Execute an update statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @param batchSettings Thresholds at which queued statements are sent to the database.
+     * @return int[] The number of rows affected by each update, in the order of the parameters.
+     */
+    public int[] updateAll(@Nonnull String statement, @Nonnull Collection<?> parameters, @Nonnull BatchSettings batchSettings) throws DatabaseException {
+        return batch(BatchQueryOperation.Type.UPDATE, statement, parameters, batchSettings);
+    }
+
+    /**
+     * Execute a delete statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @return int[] The number of rows affected by each delete, in the order of the parameters.
+     */
+    public int[] deleteAll(@Nonnull String statement, @Nonnull Collection<?> parameters) throws DatabaseException {
+        return deleteAll(statement, parameters, BatchSettings.DEFAULT);
+    }
+
+    /**
+     * Execute a delete statement for every parameter, in a single batch session and transaction.
+     *
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters The parameter objects to pass to the statement, one statement per parameter.
+     * @param batchSettings Thresholds at which queued statements are sent to the database.
+     * @return int[] The number of rows affected by each delete, in the order of the parameters.
+     */
+    public int[] deleteAll(@Nonnull String statement, @Nonnull Collection<?> parameters, @Nonnull BatchSettings batchSettings) throws DatabaseException {
+        return batch(BatchQueryOperation.Type.DELETE, statement, parameters, batchSettings);
+    }
+
+    private int[] batch(BatchQueryOperation.Type type, String statement, Collection<?> parameters, BatchSettings batchSettings) throws DatabaseException {
+        BatchQueryOperation batchQueryOperation = new BatchQueryOperation(type, statement, parameters, batchSettings, databaseConnection);
+        return invalidating(statement, QueryOperationRunner.run(batchQueryOperation, databaseConnection.isPrivileged()));
+    }
+
+    /**
+     * Bulk load rows into a table with PostgreSQL {@code COPY FROM STDIN}, far faster than inserting them for large loads. The rows are encoded
+     * and sent while the iterator is consumed, in a single transaction that is rolled back when a row is rejected. As the load bypasses the mapper
+     * statements, all cached results and reads in flight are invalidated once it committed.
+     *
+     * @param table name of the table to load into
+     * @param copyMapping columns of the table and how their values are taken from the rows
+     * @param rows the rows to load
+     * @param <T> type of the rows
+     * @return the number of rows loaded
+     * @throws DatabaseException when the rows can't be loaded, also when taking a value from a row fails
+     */
+    public <T> long copyIn(@Nonnull String table, @Nonnull CopyMapping<T> copyMapping, @Nonnull Iterator<? extends T> rows) throws DatabaseException {
+        CopyInQueryOperation<T> copyInQueryOperation = new CopyInQueryOperation<>(table, copyMapping, rows, databaseConnection);
+        long loaded = QueryOperationRunner.run(copyInQueryOperation, databaseConnection.isPrivileged());
+        invalidateAll();
+        return loaded;
+    }
+
+    private void checkNotBatching(String statement) throws DatabaseException {
+        // A batching session only queues the statement, closing it without a commit would drop the write
+        if (databaseConnection.getExecutorType() == ExecutorType.BATCH) {
+            throw new DatabaseException("A single statement can't run on a batching connection, use insertAll, updateAll or deleteAll", statement);
         }
+    }
 
-        try {
-            DeleteQueryOperation updateQueryOperation = new DeleteQueryOperation(statement, parameter, databaseConnection);
-            return AccessController.doPrivileged(updateQueryOperation);
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                // re-throw the exception but as DatabaseException
-                throw (DatabaseException) e.getException();
-            }
-            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
+    private AsyncQueryExecutor async() {
+        return asyncQueryExecutor != null ? asyncQueryExecutor : AsyncQueryExecutor.defaultExecutor();
+    }
+
+    private <T> T invalidating(String statement, T result) {
+        invalidate(statement);
+        return result;
+    }
+
+    /**
+     * Drop every cached result, for writes of which the statements are not known.
+     */
+    private void invalidateAll() {
+        SingleFlight singleFlight = databaseConnection.getSingleFlight();
+        if (singleFlight != null) {
+            singleFlight.invalidate();
+        }
+        QueryCache queryCache = databaseConnection.getQueryCache();
+        if (queryCache != null) {
+            queryCache.invalidateAll();
         }
     }
 
     /**
-     * Execute a custom query, for instance to apply multiple queries in the same session
+     * Drop cached results the written statement may have changed.
+     */
+    private void invalidate(String statement) {
+        // Before the cache: a read that sees the new cache generation must not join a read in flight from before the write
+        SingleFlight singleFlight = databaseConnection.getSingleFlight();
+        if (singleFlight != null) {
+            singleFlight.invalidate();
+        }
+        QueryCache queryCache = databaseConnection.getQueryCache();
+        if (queryCache != null) {
+            queryCache.invalidateAfterWrite(statement);
+        }
+    }
+
+    /**
+     * Execute several statements as one unit of work. All statements share one session and JDBC connection, they are committed once when the
+     * callback returns and rolled back when it throws. On a {@link ExecutorType#REUSE} view of the connection a statement is prepared once and
+     * reused for later executions in the transaction.
+     *
+     * @param transactionCallback statements to execute, usually lambda function
+     * @param <T> class type that should be returned
+     * @return the result of the callback
+     * @throws DatabaseException when one of the statements fails or the transaction can't be committed
+     */
+    public <T> T inTransaction(@Nonnull TransactionCallback<T> transactionCallback) throws DatabaseException {
+        return QueryOperationRunner.run((PrivilegedExceptionAction<T>) () -> {
+            try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), false);
+                SessionTransaction transaction = SessionTransaction.begin(sqlSession)) {
+                TransactionScope transactionScope = new TransactionScope(sqlSession, databaseConnection);
+                T result = transactionCallback.apply(transactionScope);
+                transaction.commit();
+                transactionScope.getWrittenStatements().forEach(this::invalidate);
+                return result;
+            } catch (PersistenceException e) {
+                throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
+            }
+        }, databaseConnection.isPrivileged());
+    }
+
+    /**
+     * Asynchronous {@link #inTransaction(TransactionCallback)}, the whole transaction runs on one thread of the {@link AsyncQueryExecutor}.
+     *
+     * @param transactionCallback statements to execute, usually lambda function
+     * @param <T> class type that should be returned
+     * @return future of the result of the callback, completed exceptionally with the {@link DatabaseException} when the transaction fails
+     */
+    public <T> CompletableFuture<T> inTransactionAsync(@Nonnull TransactionCallback<T> transactionCallback) {
+        return async().submit(() -> inTransaction(transactionCallback));
+    }
+
+    /**
+     * Current write-ahead log position of the primary. Taken after a commit, passing it to {@link ReadSession#observing(ConsistencyToken)} makes
+     * the reads see the committed writes.
+     *
+     * @return token for the current position
+     * @throws DatabaseException when the position can't be read
+     */
+    public ConsistencyToken consistencyToken() throws DatabaseException {
+        return custom(sqlSession -> {
+            try (Statement statement = sqlSession.getConnection().createStatement(); ResultSet resultSet = statement.executeQuery("SELECT pg_current_wal_lsn()")) {
+                if (! resultSet.next()) {
+                    throw new DatabaseException(DatabaseMessage.UNABLE_TO_READ_LOG_POSITION.getMessage());
+                }
+                return ConsistencyToken.parse(resultSet.getString(1));
+            } catch (SQLException e) {
+                throw new DatabaseException(DatabaseMessage.UNABLE_TO_READ_LOG_POSITION, e);
+            }
+        });
+    }
+
+    /**
+     * Execute a custom query, for instance to apply multiple queries in the same session. Writes in a custom session do not invalidate the
+     * {@link QueryCache}, call {@link QueryCache#invalidateNamespace(String)} for the namespaces written and {@link SingleFlight#invalidate()}.
+     * On a {@link ExecutorType#REUSE} view of the connection the session reuses its prepared statements, read a cursor to the end before running
+     * its statement again in the same session.
      *
      * @param customSessionManager that is to be executed, ususally lambda function
      * @param <T> class type that should be returned
@@ -138,20 +361,13 @@ public class WriteSession implements DatabaseSession {
      * @throws DatabaseException when unable to execute the query
      */
     public <T> T custom(@Nonnull CustomSessionManager<T> customSessionManager) throws DatabaseException {
-        try {
-            return AccessController.doPrivileged((PrivilegedExceptionAction<T>) () -> {
-                try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit())) {
-                    return customSessionManager.apply(sqlSession);
-                } catch (PersistenceException e) {
-                    throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
-                }
-            });
-        } catch (PrivilegedActionException e) {
-            if (e.getException() instanceof DatabaseException) {
-                throw (DatabaseException) e.getException();
+        return QueryOperationRunner.run((PrivilegedExceptionAction<T>) () -> {
+            try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit())) {
+                return customSessionManager.apply(sqlSession);
+            } catch (PersistenceException e) {
+                throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
             }
-            throw new DatabaseException("Unknown exception type", e);
-        }
+        }, databaseConnection.isPrivileged());
     }
 
 }
@@ -0,0 +1,57 @@
+package org.databasespring.framework.database.session.copy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Columns of a {@code COPY} bulk load and how their values are taken from the loaded objects, in column order:
+ *
+ * <pre>
+ * CopyMapping&lt;AuditEntry&gt; mapping = new CopyMapping&lt;AuditEntry&gt;()
+ *     .column("id", AuditEntry::getId)
+ *     .column("action", AuditEntry::getAction)
+ *     .column("created_at", AuditEntry::getCreatedAt);
+ * </pre>
+ *
+ * Column and table names are put in the {@code COPY} statement as they are, they must not come from user input.
+ */
+public class CopyMapping<T> {
+
+    private final List<String> columns = new ArrayList<>();
+    private final List<Function<? super T, ?>> extractors = new ArrayList<>();
+
+    /**
+     * @param column name of the column
+     * @param extractor value of the column for an object, null is loaded as {@code NULL}
+     * @return this mapping
+     */
+    public CopyMapping<T> column(@Nonnull String column, @Nonnull Function<? super T, ?> extractor) {
+        columns.add(column);
+        extractors.add(extractor);
+        return this;
+    }
+
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    List<Function<? super T, ?>> getExtractors() {
+        return extractors;
+    }
+
+    /**
+     * @param table name of the table to load into
+     * @return the {@code COPY} statement reading the text format from the client
+     */
+    public String copySql(@Nonnull String table) {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("A copy mapping needs at least one column");
+        }
+        return "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.databasespring.framework.database.session.copy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Encodes objects in the text format of PostgreSQL {@code COPY}: one line per object, columns separated by tabs, {@code \N} for null and
+ * backslash escapes for backslashes, tabs and line breaks. Rows are written to the stream as they are encoded, the load is never held in
+ * memory as a whole.
+ */
+public class CopyTextEncoder<T> {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final List<Function<? super T, ?>> extractors;
+
+    public CopyTextEncoder(@Nonnull CopyMapping<T> copyMapping) {
+        this.extractors = copyMapping.getExtractors();
+    }
+
+    /**
+     * Encode the rows to the stream, the stream is flushed but not closed.
+     *
+     * @param rows objects to encode, consumed as they are written
+     * @param outputStream destination, usually the copy stream of the driver
+     * @return the number of rows encoded
+     * @throws IOException when the stream can't be written
+     */
+    public long encode(@Nonnull Iterator<? extends T> rows, @Nonnull OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        long count = 0;
+        while (rows.hasNext()) {
+            encodeRow(rows.next(), writer);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void encodeRow(T row, Writer writer) throws IOException {
+        for (int i = 0; i < extractors.size(); i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            Object value = extractors.get(i).apply(row);
+            if (value == null) {
+                writer.write("\\N");
+            } else {
+                writeEscaped(format(value), writer);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "t" : "f";
+        } else if (value instanceof byte[]) {
+            // bytea hex input, its backslash is escaped like any other
+            byte[] bytes = (byte[]) value;
+            char[] hex = new char[2 + bytes.length * 2];
+            hex[0] = '\\';
+            hex[1] = 'x';
+            for (int i = 0; i < bytes.length; i++) {
+                hex[2 + i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+                hex[3 + i * 2] = HEX[bytes[i] & 0xF];
+            }
+            return new String(hex);
+        } else if (value instanceof Date && ! (value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof java.sql.Timestamp)) {
+            return ((Date) value).toInstant().toString();
+        }
+        return value.toString();
+    }
+
+    private static void writeEscaped(String value, Writer writer) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String escape;
+            switch (value.charAt(i)) {
+                case '\\':
+                    escape = "\\\\";
+                    break;
+                case '\t':
+                    escape = "\\t";
+                    break;
+                case '\n':
+                    escape = "\\n";
+                    break;
+                case '\r':
+                    escape = "\\r";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(escape);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+    }
+
+}
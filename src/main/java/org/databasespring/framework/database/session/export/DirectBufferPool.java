@@ -0,0 +1,40 @@
+package org.databasespring.framework.database.session.export;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reuses the direct buffers of exports, allocating a direct buffer is expensive and they are only freed by the garbage collector.
+ */
+final class DirectBufferPool {
+
+    static final int BUFFER_SIZE = 65536;
+    private static final int MAX_POOLED = 32;
+
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private DirectBufferPool() {
+    }
+
+    static ByteBuffer acquire() {
+        ByteBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        POOLED.decrementAndGet();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(buffer);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.databasespring.framework.database.session.export;
+
+/**
+ * Text formats rows can be exported in.
+ */
+public enum ExportFormat {
+    /**
+     * Comma separated values with a header line of the column labels, fields are quoted as described in RFC 4180 and null is an empty field
+     */
+    CSV,
+    /**
+     * One JSON object per line keyed by the column labels, numbers and booleans are written unquoted
+     */
+    NDJSON
+}
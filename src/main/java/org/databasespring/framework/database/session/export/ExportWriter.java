@@ -0,0 +1,207 @@
+package org.databasespring.framework.database.session.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Writes rows as CSV or NDJSON in UTF-8 to a channel. Values are escaped into a small character buffer and encoded into a pooled direct buffer
+ * that is written to the channel when full, so memory use doesn't grow with the number of rows.
+ * <p>
+ * Usage: {@link #header(String[])} once, then per row {@link #value(String, boolean)} or {@link #number(String)} for every column between
+ * {@link #beginRow()} and {@link #endRow()}, and finally {@link #close()}. Closing flushes the writer, the channel stays open.
+ */
+public class ExportWriter implements AutoCloseable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ExportFormat exportFormat;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(8192);
+    private ByteBuffer bytes = DirectBufferPool.acquire();
+    private String[] columns;
+    private int column;
+
+    public ExportWriter(@Nonnull ExportFormat exportFormat, @Nonnull WritableByteChannel channel) {
+        this.exportFormat = exportFormat;
+        this.channel = channel;
+    }
+
+    /**
+     * @param columns labels of the columns, in the order the values are written
+     */
+    public void header(@Nonnull String[] columns) throws IOException {
+        this.columns = columns;
+        if (exportFormat == ExportFormat.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    put(',');
+                }
+                csv(columns[i]);
+            }
+            put('\n');
+        }
+    }
+
+    public void beginRow() {
+        column = 0;
+    }
+
+    /**
+     * @param value text of the value, null for SQL {@code NULL}
+     * @param literal whether the value is a JSON number or boolean, written without quotes in NDJSON
+     */
+    public void value(@CheckForNull String value, boolean literal) throws IOException {
+        if (exportFormat == ExportFormat.CSV) {
+            if (column > 0) {
+                put(',');
+            }
+            if (value != null) {
+                csv(value);
+            }
+        } else {
+            put(column == 0 ? '{' : ',');
+            json(columns[column]);
+            put(':');
+            if (value == null) {
+                putAll("null");
+            } else if (literal) {
+                putAll(value);
+            } else {
+                json(value);
+            }
+        }
+        column++;
+    }
+
+    /**
+     * @param value text of a number, null for SQL {@code NULL}. NaN and infinity are no JSON numbers, they are written as text in NDJSON.
+     */
+    public void number(@CheckForNull String value) throws IOException {
+        value(value, value != null && ! value.isEmpty() && Character.isDigit(value.charAt(value.length() - 1)));
+    }
+
+    public void endRow() throws IOException {
+        if (exportFormat == ExportFormat.NDJSON) {
+            putAll(column == 0 ? "{}" : "}");
+        }
+        put('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bytes == null) {
+            return;
+        }
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        } finally {
+            DirectBufferPool.release(bytes);
+            bytes = null;
+        }
+    }
+
+    private void csv(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && ! quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (! quote) {
+            putAll(value);
+            return;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put('"');
+            }
+            put(c);
+        }
+        put('"');
+    }
+
+    private void json(String value) throws IOException {
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    put('\\');
+                    put(c);
+                    break;
+                case '\n':
+                    put('\\');
+                    put('n');
+                    break;
+                case '\r':
+                    put('\\');
+                    put('r');
+                    break;
+                case '\t':
+                    put('\\');
+                    put('t');
+                    break;
+                default:
+                    if (c < 0x20) {
+                        putAll("\\u00");
+                        put(HEX[c >> 4]);
+                        put(HEX[c & 0xF]);
+                    } else {
+                        put(c);
+                    }
+            }
+        }
+        put('"');
+    }
+
+    private void putAll(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            put(value.charAt(i));
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (! chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result = encoder.encode(chars, bytes, endOfInput);
+        while (result.isOverflow()) {
+            drain();
+            result = encoder.encode(chars, bytes, endOfInput);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        // A high surrogate at the end stays behind until its low surrogate arrives
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.databasespring.framework.database.session.interceptor;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * Applies a per-call JDBC fetch size to statements prepared on the current thread. MyBatis only knows the fetch size of the mapped statement or
+ * the global default, this allows a single call to stream rows without changing the mapper.
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class FetchSizeInterceptor implements Interceptor {
+
+    private static final ThreadLocal<Integer> FETCH_SIZE = new ThreadLocal<>();
+
+    /**
+     * Set the fetch size for statements prepared by the current thread until {@link #clear()} is called.
+     *
+     * @param fetchSize the number of rows the driver should fetch per round trip
+     */
+    public static void set(int fetchSize) {
+        FETCH_SIZE.set(fetchSize);
+    }
+
+    public static void clear() {
+        FETCH_SIZE.remove();
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Statement statement = (Statement) invocation.proceed();
+        Integer fetchSize = FETCH_SIZE.get();
+        if (fetchSize != null) {
+            statement.setFetchSize(fetchSize);
+        }
+        return statement;
+    }
+
+}
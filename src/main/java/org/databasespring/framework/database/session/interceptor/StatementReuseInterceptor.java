@@ -0,0 +1,78 @@
+package org.databasespring.framework.database.session.interceptor;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.databasespring.framework.database.metrics.QueryMetrics;
+
+/**
+ * Counts how often statements are executed and how often they had to be prepared for it, and reports every execution to the
+ * {@link QueryMetrics#statementExecuted(boolean)}. With {@link org.apache.ibatis.session.ExecutorType#REUSE}, opted in to through a view of the
+ * connection, a session prepares a statement once and only binds the parameters on later executions, the hit rate tells how much that
+ * saves. The server side statement cache of the PostgreSQL driver, tuned through {@code prepareThreshold} and
+ * {@code preparedStatementCacheQueries}, works below this level and is not counted.
+ */
+@Intercepts({
+    @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+    @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class})
+})
+public class StatementReuseInterceptor implements Interceptor {
+
+    private final LongAdder prepared = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    // Handler that prepared a statement on this thread and is about to bind its parameters, per instance as the plugins of a factory nest
+    private final ThreadLocal<Object> preparing = new ThreadLocal<>();
+    private final QueryMetrics queryMetrics;
+
+    public StatementReuseInterceptor() {
+        this(QueryMetrics.NOOP);
+    }
+
+    public StatementReuseInterceptor(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        // Every execution binds its parameters, only executions without a reusable statement prepare one
+        if ("prepare".equals(invocation.getMethod().getName())) {
+            prepared.increment();
+            preparing.set(invocation.getTarget());
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                preparing.remove();
+                throw e;
+            }
+        } else {
+            executed.increment();
+            boolean reused = preparing.get() != invocation.getTarget();
+            preparing.remove();
+            queryMetrics.statementExecuted(reused);
+        }
+        return invocation.proceed();
+    }
+
+    public long getPrepared() {
+        return prepared.sum();
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * @return fraction of the executions that reused a prepared statement, 0 before anything executed
+     */
+    public double getHitRate() {
+        long executions = executed.sum();
+        return executions == 0 ? 0 : Math.max(0, executions - prepared.sum()) / (double) executions;
+    }
+
+}
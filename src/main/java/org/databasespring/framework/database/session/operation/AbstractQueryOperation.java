@@ -9,6 +9,7 @@ import org.apache.ibatis.session.SqlSession;
 import org.databasespring.framework.database.connection.DatabaseConnection;
 import org.databasespring.framework.database.exception.DatabaseException;
 import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.metrics.QueryMetrics;
 
 public abstract class AbstractQueryOperation<R extends AbstractQueryOperation<R, T>, T> implements PrivilegedExceptionAction<T>, QueryOperation<T> {
 
@@ -19,7 +20,7 @@ public abstract class AbstractQueryOperation<R extends AbstractQueryOperation<R,
     }
 
     /**
-     * Performs the computation.  This method will be called by {@code AccessController.doPrivileged} after enabling privileges.
+     * Performs the computation.  This method is called directly, or by {@code AccessController.doPrivileged} after enabling privileges when the connection is privileged.
      *
      * @return a class-dependent value that may represent the results of the computation.  Each class that implements {@code PrivilegedExceptionAction} should document what (if anything) this value
      * represents.
@@ -29,10 +30,82 @@ public abstract class AbstractQueryOperation<R extends AbstractQueryOperation<R,
      */
     @Override
     public T run() throws Exception {
-        try (SqlSession sqlSession = databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit())) {
-            return this.execute(sqlSession);
+        QueryMetrics queryMetrics = databaseConnection.getQueryMetrics();
+        long start = System.nanoTime();
+        SqlSession sqlSession = openSession();
+        boolean closeSession = true;
+        try {
+            if (queryMetrics != QueryMetrics.NOOP) {
+                // The connection is otherwise obtained lazily by the first statement, which would count as execution time
+                sqlSession.getConnection();
+            }
+            long opened = System.nanoTime();
+            T result = this.runInSession(sqlSession);
+            closeSession = ! keepsSessionOpen();
+            queryMetrics.completed(this, opened - start, System.nanoTime() - opened, rowCount(result));
+            return result;
         } catch (PersistenceException | DatabaseException e) {
+            queryMetrics.failed(this, failureMessage(e), System.nanoTime() - start);
             throw new DatabaseException(DatabaseMessage.UNABLE_TO_EXECUTE, e);
+        } catch (RuntimeException e) {
+            // Mapping and programming errors are passed on unchanged, but still count as failed queries
+            queryMetrics.failed(this, failureMessage(e), System.nanoTime() - start);
+            throw e;
+        } finally {
+            if (closeSession) {
+                sqlSession.close();
+            }
         }
     }
+
+    /**
+     * Execute the operation in the opened session, by default committing afterwards when the connection doesn't autocommit.
+     *
+     * @param sqlSession the session opened for this operation
+     * @return the result of the operation
+     * @throws DatabaseException when the operation fails
+     */
+    protected T runInSession(SqlSession sqlSession) throws DatabaseException {
+        T result = this.execute(sqlSession);
+        if (! databaseConnection.isAutoCommit()) {
+            // Without autocommit every operation is its own transaction
+            sqlSession.commit();
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the session is handed over with the result instead of being closed once the operation completed
+     */
+    protected boolean keepsSessionOpen() {
+        return false;
+    }
+
+    /**
+     * @return the number of rows selected or affected for the result, {@code -1} when unknown
+     */
+    protected int rowCount(T result) {
+        return -1;
+    }
+
+    protected DatabaseConnection getDatabaseConnection() {
+        return databaseConnection;
+    }
+
+    protected SqlSession openSession() {
+        return databaseConnection.getSqlSessionFactory().openSession(databaseConnection.getExecutorType(), databaseConnection.isAutoCommit());
+    }
+
+    private static DatabaseMessage failureMessage(Exception exception) {
+        DatabaseMessage databaseMessage = DatabaseMessage.UNABLE_TO_EXECUTE;
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DatabaseException && ((DatabaseException) cause).getDatabaseMessage() != null) {
+                databaseMessage = ((DatabaseException) cause).getDatabaseMessage();
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return databaseMessage;
+    }
 }
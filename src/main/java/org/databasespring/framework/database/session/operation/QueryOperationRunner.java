@@ -0,0 +1,42 @@
+package org.databasespring.framework.database.session.operation;
+
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+
+/**
+ * Runs an operation directly, or through {@code AccessController.doPrivileged} when the connection opted in to privileged execution. The direct
+ * path avoids the stack walk and the wrapping of every exception in a {@link PrivilegedActionException}.
+ */
+public final class QueryOperationRunner {
+
+    private QueryOperationRunner() {
+    }
+
+    /**
+     * @param action the operation to run
+     * @param privileged whether the operation is run with the privileges of this framework
+     * @param <T> class type that should be returned
+     * @return the result of the operation
+     * @throws DatabaseException when the operation fails
+     */
+    public static <T> T run(PrivilegedExceptionAction<T> action, boolean privileged) throws DatabaseException {
+        try {
+            return privileged ? AccessController.doPrivileged(action) : action.run();
+        } catch (PrivilegedActionException e) {
+            if (e.getException() instanceof DatabaseException) {
+                // re-throw the exception but as DatabaseException
+                throw (DatabaseException) e.getException();
+            }
+            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
+        } catch (DatabaseException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException(DatabaseMessage.UNKNOWN_EXCEPTION, e);
+        }
+    }
+
+}
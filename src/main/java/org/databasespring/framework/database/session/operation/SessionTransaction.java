@@ -0,0 +1,99 @@
+package org.databasespring.framework.database.session.operation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+
+/**
+ * Switches the JDBC connection of a session to manual commit and restores it when closed. Spring managed sessions ignore the autocommit flag
+ * passed to {@code openSession}, so the connection itself is changed.
+ */
+public final class SessionTransaction implements AutoCloseable {
+
+    private final SqlSession sqlSession;
+    private final Connection connection;
+    private final boolean previousAutoCommit;
+    private boolean completed;
+
+    private SessionTransaction(SqlSession sqlSession, Connection connection, boolean previousAutoCommit) {
+        this.sqlSession = sqlSession;
+        this.connection = connection;
+        this.previousAutoCommit = previousAutoCommit;
+    }
+
+    /**
+     * Start a transaction on the connection of the session.
+     *
+     * @param sqlSession session of which the connection is used
+     * @return the started transaction
+     * @throws DatabaseException when the connection can't be switched to manual commit
+     */
+    public static SessionTransaction begin(SqlSession sqlSession) throws DatabaseException {
+        try {
+            Connection connection = sqlSession.getConnection();
+            boolean previousAutoCommit = connection.getAutoCommit();
+            if (previousAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+            return new SessionTransaction(sqlSession, connection, previousAutoCommit);
+        } catch (SQLException | PersistenceException e) {
+            throw new DatabaseException(DatabaseMessage.UNABLE_TO_START_TRANSACTION, e);
+        }
+    }
+
+    public void commit() throws DatabaseException {
+        try {
+            sqlSession.flushStatements();
+            connection.commit();
+            completed = true;
+        } catch (SQLException | PersistenceException e) {
+            throw new DatabaseException(DatabaseMessage.UNABLE_TO_COMMIT, e);
+        }
+    }
+
+    public void rollback() throws DatabaseException {
+        try {
+            completed = true;
+            connection.rollback();
+        } catch (SQLException e) {
+            throw new DatabaseException(DatabaseMessage.UNABLE_TO_ROLLBACK, e);
+        }
+    }
+
+    /**
+     * Rolls back anything that was not committed and restores the autocommit state of the connection.
+     *
+     * @throws DatabaseException when the connection can't be restored
+     */
+    @Override
+    public void close() throws DatabaseException {
+        if (! completed) {
+            rollback();
+        }
+        try {
+            if (previousAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(DatabaseMessage.UNABLE_TO_ROLLBACK, e);
+        }
+    }
+
+    /**
+     * Close after the work in the transaction failed, keeping that failure as the one thrown.
+     *
+     * @param failure the failure of the work, a failure to close is added to it as suppressed
+     */
+    public void close(Throwable failure) {
+        try {
+            close();
+        } catch (DatabaseException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+}
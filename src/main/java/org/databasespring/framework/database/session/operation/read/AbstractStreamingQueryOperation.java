@@ -0,0 +1,88 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.interceptor.FetchSizeInterceptor;
+import org.databasespring.framework.database.session.operation.AbstractQueryOperation;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+
+/**
+ * Base for operations that consume the rows one at a time through a {@link ResultHandler} instead of collecting them in a list first.
+ */
+public abstract class AbstractStreamingQueryOperation<R extends AbstractStreamingQueryOperation<R, T>, T> extends AbstractQueryOperation<R, T> {
+
+    private final String statement;
+    private final Object parameter;
+    private final RowBounds rowBounds;
+    private final int fetchSize;
+
+    protected AbstractStreamingQueryOperation(String statement, Object parameter, RowBounds rowBounds, int fetchSize, DatabaseConnection databaseConnection) {
+        super(databaseConnection);
+        this.statement = statement;
+        this.parameter = parameter;
+        this.rowBounds = rowBounds;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public String getStatement() {
+        return statement;
+    }
+
+    @Override
+    public Object getParameter() {
+        return parameter;
+    }
+
+    @Override
+    public RowBounds getRowBounds() {
+        return rowBounds;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    protected T runInSession(SqlSession sqlSession) throws DatabaseException {
+        // The PostgreSQL driver only honours the fetch size outside of autocommit mode
+        SessionTransaction sessionTransaction = SessionTransaction.begin(sqlSession);
+        T result;
+        try {
+            result = execute(sqlSession);
+        } catch (DatabaseException | RuntimeException e) {
+            sessionTransaction.close(e);
+            throw e;
+        }
+        sessionTransaction.close();
+        return result;
+    }
+
+    /**
+     * Execute the statement and pass every mapped row to the handler.
+     *
+     * @param sqlSession session to execute the statement in
+     * @param resultHandler handler receiving the rows
+     * @throws DatabaseException when the statement is invalid or can't be executed
+     */
+    protected void select(SqlSession sqlSession, ResultHandler<Object> resultHandler) throws DatabaseException {
+        if (StringUtils.isEmpty(statement)) {
+            throw new DatabaseException("Invalid statement provided", statement);
+        }
+
+        FetchSizeInterceptor.set(fetchSize);
+        try {
+            sqlSession.select(statement, parameter, rowBounds != null ? rowBounds : RowBounds.DEFAULT, resultHandler);
+        } catch (PersistenceException e) {
+            throw new DatabaseException("Unable to execute query", statement, e);
+        } finally {
+            FetchSizeInterceptor.clear();
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.export.ExportFormat;
+import org.databasespring.framework.database.session.export.ExportWriter;
+
+/**
+ * Writes the rows of a select to a channel as they are read from the result set. The statement is bound through MyBatis, but the rows are
+ * taken from the result set columns directly instead of being mapped to objects first. Returns the number of rows exported.
+ */
+public class ExportQueryOperation extends AbstractStreamingQueryOperation<ExportQueryOperation, Long> {
+
+    private final ExportFormat exportFormat;
+    private final WritableByteChannel channel;
+
+    public ExportQueryOperation(String statement, Object parameter, int fetchSize, ExportFormat exportFormat, WritableByteChannel channel,
+        DatabaseConnection databaseConnection) {
+        super(statement, parameter, null, fetchSize, databaseConnection);
+        this.exportFormat = exportFormat;
+        this.channel = channel;
+    }
+
+    @Override
+    protected int rowCount(Long result) {
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Long execute(SqlSession sqlSession) throws DatabaseException {
+        if (StringUtils.isEmpty(getStatement())) {
+            throw new DatabaseException("Invalid statement provided", getStatement());
+        }
+
+        Configuration configuration = sqlSession.getConfiguration();
+        MappedStatement mappedStatement = configuration.getMappedStatement(getStatement());
+        BoundSql boundSql = mappedStatement.getBoundSql(getParameter());
+        Connection connection = sqlSession.getConnection();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(boundSql.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(getFetchSize());
+            configuration.newParameterHandler(mappedStatement, getParameter(), boundSql).setParameters(preparedStatement);
+            try (ResultSet resultSet = preparedStatement.executeQuery(); ExportWriter exportWriter = new ExportWriter(exportFormat, channel)) {
+                return write(resultSet, exportWriter);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Unable to export query", getStatement(), e);
+        }
+    }
+
+    private static long write(ResultSet resultSet, ExportWriter exportWriter) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columns = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        exportWriter.header(columns);
+
+        long rows = 0;
+        while (resultSet.next()) {
+            exportWriter.beginRow();
+            for (int i = 0; i < columnCount; i++) {
+                switch (types[i]) {
+                    case Types.BOOLEAN:
+                    case Types.BIT:
+                        boolean value = resultSet.getBoolean(i + 1);
+                        exportWriter.value(resultSet.wasNull() ? null : String.valueOf(value), true);
+                        break;
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                        exportWriter.value(resultSet.getString(i + 1), true);
+                        break;
+                    case Types.REAL:
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                    case Types.DECIMAL:
+                    case Types.NUMERIC:
+                        exportWriter.number(resultSet.getString(i + 1));
+                        break;
+                    default:
+                        exportWriter.value(resultSet.getString(i + 1), false);
+                }
+            }
+            exportWriter.endRow();
+            rows++;
+        }
+        return rows;
+    }
+
+}
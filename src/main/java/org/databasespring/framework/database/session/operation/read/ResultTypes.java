@@ -0,0 +1,65 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Checks the result class a caller asks for against the type of the result map of the statement. The outcome is decided once per mapped
+ * statement and result class, after that a call costs two lock free lookups instead of a check per row. The verdicts are held weakly by their
+ * mapped statement, they go away with the configuration of a closed context.
+ */
+final class ResultTypes {
+
+    private static final Cache<MappedStatement, Map<Class<?>, Verdict>> VERDICTS = Caffeine.newBuilder().weakKeys().build();
+
+    private ResultTypes() {
+    }
+
+    /**
+     * @param configuration configuration of the session the statement ran on
+     * @param statement statement id
+     * @param resultClazz result class the caller asked for
+     * @param firstRow first mapped row, only inspected when the result map doesn't tell
+     * @throws DatabaseException when the rows are not of the result class
+     */
+    static void check(Configuration configuration, String statement, Class<?> resultClazz, Object firstRow) throws DatabaseException {
+        MappedStatement mappedStatement = configuration.getMappedStatement(statement);
+        Verdict verdict = VERDICTS.get(mappedStatement, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(resultClazz, key -> verdict(mappedStatement, resultClazz));
+        if (verdict == Verdict.MISMATCH || (verdict == Verdict.UNKNOWN && ! ClassUtils.primitiveToWrapper(resultClazz).isInstance(firstRow))) {
+            throw new DatabaseException("Raw result and result class don't match", statement);
+        }
+    }
+
+    private static Verdict verdict(MappedStatement mappedStatement, Class<?> resultClazz) {
+        List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+        if (resultMaps.size() != 1) {
+            // Multiple result sets or none at all
+            return Verdict.UNKNOWN;
+        }
+        Class<?> requested = ClassUtils.primitiveToWrapper(resultClazz);
+        Class<?> mapped = ClassUtils.primitiveToWrapper(resultMaps.get(0).getType());
+        if (requested.isAssignableFrom(mapped)) {
+            return Verdict.MATCH;
+        }
+        // A result map of a super type, for instance Object or an interface, may still produce rows of the result class
+        return mapped.isAssignableFrom(requested) ? Verdict.UNKNOWN : Verdict.MISMATCH;
+    }
+
+    private enum Verdict {
+        MATCH,
+        MISMATCH,
+        UNKNOWN
+    }
+
+}
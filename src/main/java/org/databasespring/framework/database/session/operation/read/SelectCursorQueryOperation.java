@@ -0,0 +1,87 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.interceptor.FetchSizeInterceptor;
+import org.databasespring.framework.database.session.operation.AbstractQueryOperation;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+
+/**
+ * Opens a cursor that streams rows from the database. Unlike the other operations the session stays open after {@link #run()}, it is owned by
+ * the returned cursor and closed when the cursor is closed or exhausted.
+ * <p>
+ * The PostgreSQL driver only fetches rows in chunks of the fetch size when the connection is not in autocommit mode, so a transaction is kept
+ * open for the lifetime of the cursor.
+ */
+public class SelectCursorQueryOperation<T> extends AbstractQueryOperation<SelectCursorQueryOperation<T>, Cursor<T>> {
+
+    private final String statement;
+    private final Object parameter;
+    private final RowBounds rowBounds;
+    private final int fetchSize;
+
+    public SelectCursorQueryOperation(String statement, Object parameter, RowBounds rowBounds, int fetchSize, DatabaseConnection databaseConnection) {
+        super(databaseConnection);
+        this.statement = statement;
+        this.parameter = parameter;
+        this.rowBounds = rowBounds;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public String getStatement() {
+        return statement;
+    }
+
+    @Override
+    public Object getParameter() {
+        return parameter;
+    }
+
+    @Override
+    public RowBounds getRowBounds() {
+        return rowBounds;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    protected Cursor<T> runInSession(SqlSession sqlSession) throws DatabaseException {
+        SessionTransaction transaction = SessionTransaction.begin(sqlSession);
+        try {
+            return new SessionCursor<>(execute(sqlSession), sqlSession, transaction);
+        } catch (DatabaseException | RuntimeException e) {
+            transaction.close(e);
+            throw e;
+        }
+    }
+
+    @Override
+    protected boolean keepsSessionOpen() {
+        return true;
+    }
+
+    @Override
+    public Cursor<T> execute(SqlSession sqlSession) throws DatabaseException {
+        if (StringUtils.isEmpty(statement)) {
+            throw new DatabaseException("Invalid statement provided", statement);
+        }
+
+        FetchSizeInterceptor.set(fetchSize);
+        try {
+            return sqlSession.selectCursor(statement, parameter, rowBounds != null ? rowBounds : RowBounds.DEFAULT);
+        } catch (PersistenceException e) {
+            throw new DatabaseException("Unable to execute query", statement, e);
+        } finally {
+            FetchSizeInterceptor.clear();
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Pushes every mapped row into a {@link ResultHandler} as it is read, nothing is accumulated. The handler can stop the query early through
+ * {@link org.apache.ibatis.session.ResultContext#stop()}. Returns the number of rows that were handled.
+ */
+public class SelectHandlerQueryOperation extends AbstractStreamingQueryOperation<SelectHandlerQueryOperation, Integer> {
+
+    private final ResultHandler<?> resultHandler;
+
+    public SelectHandlerQueryOperation(String statement, Object parameter, RowBounds rowBounds, int fetchSize, ResultHandler<?> resultHandler,
+        DatabaseConnection databaseConnection) {
+        super(statement, parameter, rowBounds, fetchSize, databaseConnection);
+        this.resultHandler = resultHandler;
+    }
+
+    @Override
+    protected int rowCount(Integer result) {
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Integer execute(SqlSession sqlSession) throws DatabaseException {
+        if (resultHandler == null) {
+            throw new DatabaseException("No result handler provided", getStatement());
+        }
+
+        ResultHandler<Object> handler = (ResultHandler<Object>) resultHandler;
+        int[] handledRows = new int[1];
+        select(sqlSession, resultContext -> {
+            handledRows[0] = resultContext.getResultCount();
+            handler.handleResult(resultContext);
+        });
+        return handledRows[0];
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.session.operation.AbstractQueryOperation;
+import org.databasespring.framework.database.session.page.KeysetPage;
+import org.databasespring.framework.database.session.page.KeysetParameter;
+import org.databasespring.framework.database.session.page.KeysetToken;
+
+/**
+ * Select a page of rows after the sort key of the previous page. The statement seeks to the key through its index, so deep pages cost as much
+ * as the first one, unlike {@link RowBounds} that reads and discards every row before the offset.
+ */
+public class SelectKeysetPageQueryOperation<T> extends AbstractQueryOperation<SelectKeysetPageQueryOperation<T>, KeysetPage<T>> {
+
+    private final Class<T> resultClazz;
+    private final String statement;
+    private final KeysetParameter keysetParameter;
+    private final String sortKey;
+    private final int pageSize;
+
+    /**
+     * @param sortKey property of the result holding the sort key
+     * @param pageToken token of the previous page, null for the first page
+     * @throws DatabaseException with {@link DatabaseMessage#INVALID_PAGE_TOKEN} when the page token is not a valid token, or when the page size
+     * is not positive
+     */
+    public SelectKeysetPageQueryOperation(Class<T> resultClazz, String statement, Object parameter, String sortKey, String pageToken, int pageSize,
+        DatabaseConnection databaseConnection) throws DatabaseException {
+        super(databaseConnection);
+        if (pageSize <= 0 || pageSize == Integer.MAX_VALUE) {
+            // One row more than the page is selected to tell whether there is a next page
+            throw new DatabaseException("Page size must be between 1 and " + (Integer.MAX_VALUE - 1) + " but is " + pageSize, statement);
+        }
+        this.resultClazz = resultClazz;
+        this.statement = statement;
+        this.keysetParameter = new KeysetParameter(parameter, pageToken != null ? decode(pageToken) : null, pageSize + 1);
+        this.sortKey = sortKey;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Page tokens come from clients, an invalid one is reported as such rather than as a programming error.
+     */
+    private static Object decode(String pageToken) throws DatabaseException {
+        try {
+            return KeysetToken.decode(pageToken);
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException(DatabaseMessage.INVALID_PAGE_TOKEN, e);
+        }
+    }
+
+    @Override
+    public String getStatement() {
+        return statement;
+    }
+
+    @Override
+    public Object getParameter() {
+        return keysetParameter;
+    }
+
+    @Override
+    public RowBounds getRowBounds() {
+        return null;
+    }
+
+    @Override
+    protected int rowCount(KeysetPage<T> result) {
+        return result.getItems().size();
+    }
+
+    @Override
+    public KeysetPage<T> execute(SqlSession sqlSession) throws DatabaseException {
+        if (StringUtils.isEmpty(statement)) {
+            throw new DatabaseException("Invalid statement provided", statement);
+        }
+
+        List<Object> rows;
+        try {
+            rows = sqlSession.selectList(statement, keysetParameter);
+        } catch (PersistenceException e) {
+            throw new DatabaseException("Unable to execute query", statement, e);
+        }
+        if (rows.size() > keysetParameter.getLimit()) {
+            throw new DatabaseException("Statement returned more rows than the limit, it must apply #{limit}", statement);
+        }
+
+        int size = Math.min(rows.size(), pageSize);
+        List<T> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(resultClazz.cast(rows.get(i)));
+        }
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(items, null);
+        }
+
+        Object lastKey = sqlSession.getConfiguration().newMetaObject(items.get(size - 1)).getValue(sortKey);
+        if (lastKey == null) {
+            throw new DatabaseException("Sort key " + sortKey + " of the last row is null", statement);
+        }
+        try {
+            return new KeysetPage<>(items, KeysetToken.encode(lastKey));
+        } catch (IllegalArgumentException e) {
+            throw new DatabaseException("Sort key " + sortKey + " can't be put in a page token", statement, e);
+        }
+    }
+
+}
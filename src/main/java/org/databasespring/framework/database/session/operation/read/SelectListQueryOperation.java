@@ -42,6 +42,11 @@ public class SelectListQueryOperation<T> extends AbstractQueryOperation<SelectLi
         return rowBounds;
     }
 
+    @Override
+    protected int rowCount(List<T> result) {
+        return result.size();
+    }
+
     @Override
     public List<T> execute(SqlSession sqlSession) throws DatabaseException {
         if (StringUtils.isEmpty(statement)) {
@@ -67,10 +72,7 @@ public class SelectListQueryOperation<T> extends AbstractQueryOperation<SelectLi
             return Collections.emptyList();
         }
 
-        if (! rawResult.get(0).getClass().isAssignableFrom(resultClazz)) {
-            throw new DatabaseException("Raw result and result class don't match");
-        }
-
-        return Collections.checkedList(rawResult, resultClazz);
+        ResultTypes.check(sqlSession.getConfiguration(), statement, resultClazz, rawResult.get(0));
+        return rawResult;
     }
 }
@@ -0,0 +1,62 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.collection.LongObjectMap;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Builds a map keyed on a numeric ({@code long} or {@code int}) property of each mapped row while the rows are read. The keys are stored as
+ * primitives so large lookup tables don't hold a boxed key per row.
+ */
+public class SelectLongMapQueryOperation<V> extends AbstractStreamingQueryOperation<SelectLongMapQueryOperation<V>, LongObjectMap<V>> {
+
+    private final Class<V> resultClazz;
+    private final String mapKey;
+
+    public SelectLongMapQueryOperation(Class<V> resultClazz, String statement, Object parameter, String mapKey, RowBounds rowBounds, int fetchSize,
+        DatabaseConnection databaseConnection) {
+        super(statement, parameter, rowBounds, fetchSize, databaseConnection);
+        this.resultClazz = resultClazz;
+        this.mapKey = mapKey;
+    }
+
+    public String getMapKey() {
+        return mapKey;
+    }
+
+    @Override
+    protected int rowCount(LongObjectMap<V> result) {
+        return result.size();
+    }
+
+    @Override
+    public LongObjectMap<V> execute(SqlSession sqlSession) throws DatabaseException {
+        Configuration configuration = sqlSession.getConfiguration();
+        LongObjectMap<V> result = new LongObjectMap<>();
+        // The handler can't throw a DatabaseException, it stops reading and leaves the reason here
+        String[] failure = new String[1];
+        select(sqlSession, resultContext -> {
+            Object row = resultContext.getResultObject();
+            if (row != null && ! resultClazz.isInstance(row)) {
+                failure[0] = "Raw result and result class don't match";
+                resultContext.stop();
+                return;
+            }
+            Object key = configuration.newMetaObject(row).getValue(mapKey);
+            if (! (key instanceof Long || key instanceof Integer)) {
+                failure[0] = "Map key " + mapKey + " is not a long or int but " + key;
+                resultContext.stop();
+                return;
+            }
+            result.put(((Number) key).longValue(), resultClazz.cast(row));
+        });
+        if (failure[0] != null) {
+            throw new DatabaseException(failure[0], getStatement());
+        }
+        return result;
+    }
+
+}
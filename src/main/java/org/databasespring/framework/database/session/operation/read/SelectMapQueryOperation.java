@@ -0,0 +1,45 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+
+/**
+ * Builds a map keyed on a property of each mapped row while the rows are read, no intermediate list is created.
+ */
+public class SelectMapQueryOperation<K, V> extends AbstractStreamingQueryOperation<SelectMapQueryOperation<K, V>, Map<K, V>> {
+
+    private final String mapKey;
+
+    public SelectMapQueryOperation(String statement, Object parameter, String mapKey, RowBounds rowBounds, int fetchSize, DatabaseConnection databaseConnection) {
+        super(statement, parameter, rowBounds, fetchSize, databaseConnection);
+        this.mapKey = mapKey;
+    }
+
+    public String getMapKey() {
+        return mapKey;
+    }
+
+    @Override
+    protected int rowCount(Map<K, V> result) {
+        return result.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> execute(SqlSession sqlSession) throws DatabaseException {
+        Configuration configuration = sqlSession.getConfiguration();
+        Map<K, V> result = new HashMap<>();
+        select(sqlSession, resultContext -> {
+            Object value = resultContext.getResultObject();
+            result.put((K) configuration.newMetaObject(value).getValue(mapKey), (V) value);
+        });
+        return result;
+    }
+
+}
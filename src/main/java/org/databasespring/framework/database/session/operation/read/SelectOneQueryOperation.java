@@ -37,6 +37,12 @@ public class SelectOneQueryOperation<T> extends AbstractQueryOperation<SelectOne
     }
 
     @Override
+    protected int rowCount(T result) {
+        return result == null ? 0 : 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
     public T execute(SqlSession sqlSession) throws DatabaseException {
         if (StringUtils.isEmpty(statement)) {
             throw new DatabaseException("Invalid statement provided", statement);
@@ -57,10 +63,7 @@ public class SelectOneQueryOperation<T> extends AbstractQueryOperation<SelectOne
             return null;
         }
 
-        if (rawResult.getClass().isAssignableFrom(resultClazz)) {
-            return resultClazz.cast(rawResult);
-        }
-
-        throw new DatabaseException("Raw result and result class don't match");
+        ResultTypes.check(sqlSession.getConfiguration(), statement, resultClazz, rawResult);
+        return (T) rawResult;
     }
 }
@@ -0,0 +1,84 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import java.util.Iterator;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+
+/**
+ * Cursor that owns the session it was opened in, the session is closed as soon as the cursor is closed or fully consumed.
+ */
+final class SessionCursor<T> implements Cursor<T> {
+
+    private static final Logger LOG = LogManager.getLogger(SessionCursor.class);
+
+    private final Cursor<T> cursor;
+    private final SqlSession sqlSession;
+    private final SessionTransaction transaction;
+    private boolean closed;
+
+    SessionCursor(Cursor<T> cursor, SqlSession sqlSession, SessionTransaction transaction) {
+        this.cursor = cursor;
+        this.sqlSession = sqlSession;
+        this.transaction = transaction;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return ! closed && cursor.isOpen();
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return cursor.isConsumed();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return cursor.getCurrentIndex();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> iterator = cursor.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                if (closed) {
+                    return false;
+                }
+                boolean hasNext = iterator.hasNext();
+                if (! hasNext) {
+                    close();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            transaction.close();
+        } catch (DatabaseException e) {
+            LOG.warn("Unable to end the transaction of the cursor, closing the session anyway", e);
+        } finally {
+            // Closing the session also closes the underlying cursor and result set
+            sqlSession.close();
+        }
+    }
+
+}
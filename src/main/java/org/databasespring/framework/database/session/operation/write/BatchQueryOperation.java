@@ -0,0 +1,195 @@
+package org.databasespring.framework.database.session.operation.write;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.session.operation.AbstractQueryOperation;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+
+/**
+ * Executes one write statement for every parameter in a single {@link ExecutorType#BATCH} session. Statements are sent to the database whenever
+ * one of the thresholds of the {@link BatchSettings} is reached and committed once all parameters are processed. Returns the affected rows per
+ * parameter, in the order of the parameters.
+ */
+public class BatchQueryOperation extends AbstractQueryOperation<BatchQueryOperation, int[]> {
+
+    // Estimated size of a parameter value that isn't text or binary
+    private static final int VALUE_SIZE = 8;
+
+    private final Type type;
+    private final String statement;
+    private final Collection<?> parameters;
+    private final BatchSettings batchSettings;
+
+    public BatchQueryOperation(Type type, String statement, Collection<?> parameters, BatchSettings batchSettings, DatabaseConnection databaseConnection) {
+        super(databaseConnection);
+        this.type = type;
+        this.statement = statement;
+        this.parameters = parameters;
+        this.batchSettings = batchSettings;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public String getStatement() {
+        return statement;
+    }
+
+    @Override
+    public Object getParameter() {
+        return parameters;
+    }
+
+    @Override
+    public RowBounds getRowBounds() {
+        return null;
+    }
+
+    @Override
+    protected SqlSession openSession() {
+        return getDatabaseConnection().getSqlSessionFactory().openSession(ExecutorType.BATCH, false);
+    }
+
+    @Override
+    protected int[] runInSession(SqlSession sqlSession) throws DatabaseException {
+        try (SessionTransaction transaction = SessionTransaction.begin(sqlSession)) {
+            int[] affectedRecords = this.execute(sqlSession);
+            transaction.commit();
+            return affectedRecords;
+        }
+    }
+
+    @Override
+    protected int rowCount(int[] result) {
+        int rows = 0;
+        for (int affected : result) {
+            rows += Math.max(affected, 0);
+        }
+        return rows;
+    }
+
+    @Override
+    public int[] execute(SqlSession sqlSession) throws DatabaseException {
+        if (StringUtils.isEmpty(statement)) {
+            throw new DatabaseException("Invalid statement provided", statement);
+        }
+        if (parameters == null || parameters.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] affectedRecords = new int[parameters.size()];
+        int flushed = 0;
+        int pendingStatements = 0;
+        long pendingBytes = 0;
+        try {
+            MappedStatement mappedStatement = batchSettings.getMaxBytes() > 0 ? sqlSession.getConfiguration().getMappedStatement(statement) : null;
+            // Static SQL binds the same parameters for every row, only dynamic SQL has to be rendered per row to know them
+            BoundSql staticBoundSql = mappedStatement != null && mappedStatement.getSqlSource() instanceof RawSqlSource
+                ? mappedStatement.getBoundSql(parameters.iterator().next()) : null;
+            for (Object parameter : parameters) {
+                switch (type) {
+                    case INSERT:
+                        sqlSession.insert(statement, parameter);
+                        break;
+                    case UPDATE:
+                        sqlSession.update(statement, parameter);
+                        break;
+                    case DELETE:
+                        sqlSession.delete(statement, parameter);
+                        break;
+                    default:
+                        throw new DatabaseException("Unsupported batch type " + type, statement);
+                }
+
+                pendingStatements++;
+                if (mappedStatement != null) {
+                    pendingBytes += estimateSize(mappedStatement, staticBoundSql != null ? staticBoundSql : mappedStatement.getBoundSql(parameter), parameter);
+                }
+                if (isThresholdReached(pendingStatements, pendingBytes)) {
+                    flushed = flush(sqlSession, affectedRecords, flushed);
+                    pendingStatements = 0;
+                    pendingBytes = 0;
+                }
+            }
+            flush(sqlSession, affectedRecords, flushed);
+        } catch (PersistenceException e) {
+            throw new DatabaseException("Unable to execute query", statement, e);
+        }
+
+        return affectedRecords;
+    }
+
+    private boolean isThresholdReached(int pendingStatements, long pendingBytes) {
+        return (batchSettings.getMaxStatements() > 0 && pendingStatements >= batchSettings.getMaxStatements())
+            || (batchSettings.getMaxBytes() > 0 && pendingBytes >= batchSettings.getMaxBytes());
+    }
+
+    private static int flush(SqlSession sqlSession, int[] affectedRecords, int offset) {
+        List<BatchResult> batchResults = sqlSession.flushStatements();
+        int position = offset;
+        for (BatchResult batchResult : batchResults) {
+            int[] updateCounts = batchResult.getUpdateCounts();
+            int length = Math.min(updateCounts.length, affectedRecords.length - position);
+            System.arraycopy(updateCounts, 0, affectedRecords, position, length);
+            position += length;
+        }
+        return position;
+    }
+
+    /**
+     * Rough size of the parameter values sent for a single statement, text and binary values count by their length.
+     */
+    private static long estimateSize(MappedStatement mappedStatement, BoundSql boundSql, Object parameter) {
+        Configuration configuration = mappedStatement.getConfiguration();
+        boolean simpleParameter = parameter == null || configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass());
+        MetaObject metaObject = simpleParameter ? null : configuration.newMetaObject(parameter);
+
+        long size = 0;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            String property = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (metaObject != null) {
+                value = metaObject.getValue(property);
+            } else {
+                value = parameter;
+            }
+            size += sizeOf(value);
+        }
+        return size;
+    }
+
+    private static long sizeOf(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return VALUE_SIZE;
+    }
+
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE,
+    }
+
+}
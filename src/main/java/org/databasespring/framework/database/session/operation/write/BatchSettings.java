@@ -0,0 +1,37 @@
+package org.databasespring.framework.database.session.operation.write;
+
+/**
+ * Thresholds at which a batch is sent to the database. Whichever is reached first triggers a flush, a value of {@code 0} disables that
+ * threshold.
+ * <p>
+ * The byte threshold is opt-in: estimating the size of statements with dynamic SQL renders their SQL a second time for every parameter.
+ */
+public class BatchSettings {
+
+    public static final BatchSettings DEFAULT = new BatchSettings(1000, 0);
+
+    private final int maxStatements;
+    private final long maxBytes;
+
+    /**
+     * @param maxStatements number of queued statements after which the batch is flushed
+     * @param maxBytes estimated size of the queued parameters after which the batch is flushed, for example {@code 4L * 1024 * 1024} when rows
+     * carry large text or binary values
+     */
+    public BatchSettings(int maxStatements, long maxBytes) {
+        if (maxStatements < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Batch thresholds can't be negative");
+        }
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.databasespring.framework.database.session.operation.write;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.databasespring.framework.database.connection.DatabaseConnection;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.databasespring.framework.database.exception.DatabaseMessage;
+import org.databasespring.framework.database.session.copy.CopyMapping;
+import org.databasespring.framework.database.session.copy.CopyTextEncoder;
+import org.databasespring.framework.database.session.operation.AbstractQueryOperation;
+import org.databasespring.framework.database.session.operation.SessionTransaction;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Loads rows into a table with PostgreSQL {@code COPY FROM STDIN} in a single transaction. The rows are encoded and sent while the iterator is
+ * consumed. The statement reported to the metrics is the {@code COPY} SQL, as the load bypasses the mapper statements.
+ */
+public class CopyInQueryOperation<T> extends AbstractQueryOperation<CopyInQueryOperation<T>, Long> {
+
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    private final String sql;
+    private final CopyTextEncoder<T> encoder;
+    private final Iterator<? extends T> rows;
+
+    public CopyInQueryOperation(String table, CopyMapping<T> copyMapping, Iterator<? extends T> rows, DatabaseConnection databaseConnection) {
+        super(databaseConnection);
+        this.sql = copyMapping.copySql(table);
+        this.encoder = new CopyTextEncoder<>(copyMapping);
+        this.rows = rows;
+    }
+
+    @Override
+    public String getStatement() {
+        return sql;
+    }
+
+    @Override
+    public Object getParameter() {
+        return null;
+    }
+
+    @Override
+    public RowBounds getRowBounds() {
+        return null;
+    }
+
+    @Override
+    protected SqlSession openSession() {
+        return getDatabaseConnection().getSqlSessionFactory().openSession(ExecutorType.SIMPLE, false);
+    }
+
+    @Override
+    protected Long runInSession(SqlSession sqlSession) throws DatabaseException {
+        try (SessionTransaction transaction = SessionTransaction.begin(sqlSession)) {
+            long loaded = this.execute(sqlSession);
+            transaction.commit();
+            return loaded;
+        }
+    }
+
+    @Override
+    protected int rowCount(Long result) {
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Long execute(SqlSession sqlSession) throws DatabaseException {
+        PGCopyOutputStream copyStream = null;
+        try {
+            copyStream = new PGCopyOutputStream(sqlSession.getConnection().unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+            encoder.encode(rows, copyStream);
+            return copyStream.endCopy();
+        } catch (IOException | SQLException | RuntimeException e) {
+            // Includes the failures of the value extractors, the contract of the load is a DatabaseException
+            DatabaseException databaseException = new DatabaseException(DatabaseMessage.UNABLE_TO_COPY, e);
+            cancelCopy(copyStream, databaseException);
+            throw databaseException;
+        } catch (Error e) {
+            cancelCopy(copyStream, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Abort a copy that is still running, a failure to do so is kept with the failure that stopped the copy instead of hiding it.
+     */
+    private static void cancelCopy(PGCopyOutputStream copyStream, Throwable failure) {
+        if (copyStream != null && copyStream.isActive()) {
+            try {
+                copyStream.cancelCopy();
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+}
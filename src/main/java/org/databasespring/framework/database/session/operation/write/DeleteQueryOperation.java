@@ -34,6 +34,11 @@ public class DeleteQueryOperation extends AbstractQueryOperation<DeleteQueryOper
         return null;
     }
 
+    @Override
+    protected int rowCount(Integer result) {
+        return result;
+    }
+
     @Override
     public Integer execute(SqlSession sqlSession) throws DatabaseException {
         if (StringUtils.isEmpty(statement)) {
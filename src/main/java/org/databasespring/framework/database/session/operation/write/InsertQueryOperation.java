@@ -34,6 +34,11 @@ public class InsertQueryOperation extends AbstractQueryOperation<InsertQueryOper
         return null;
     }
 
+    @Override
+    protected int rowCount(Integer result) {
+        return result;
+    }
+
     @Override
     public Integer execute(SqlSession sqlSession) throws DatabaseException {
         if (StringUtils.isEmpty(statement)) {
@@ -35,6 +35,11 @@ public class UpdateQueryOperation extends AbstractQueryOperation<UpdateQueryOper
         return null;
     }
 
+    @Override
+    protected int rowCount(Integer result) {
+        return result;
+    }
+
     @Override
     public Integer execute(SqlSession sqlSession) throws DatabaseException {
         if (StringUtils.isEmpty(statement)) {
@@ -0,0 +1,36 @@
+package org.databasespring.framework.database.session.page;
+
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * One page of a keyset paginated select, with the token to continue after its last row.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public KeysetPage(List<T> items, @CheckForNull String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return opaque token of the next page, null on the last page
+     */
+    @CheckForNull
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.databasespring.framework.database.session.page;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Parameter of a keyset paginated statement. The statement filters on the sort key and limits the rows itself, for instance:
+ *
+ * <pre>
+ * SELECT id, action FROM audit_log
+ * WHERE user_id = #{parameter.userId}
+ * &lt;if test="after != null"&gt;AND id &gt; #{after}&lt;/if&gt;
+ * ORDER BY id
+ * LIMIT #{limit}
+ * </pre>
+ *
+ * The sort key must be unique, otherwise rows sharing the value of the last row of a page are skipped.
+ */
+public class KeysetParameter {
+
+    private final Object parameter;
+    private final Object after;
+    private final int limit;
+
+    public KeysetParameter(@CheckForNull Object parameter, @CheckForNull Object after, int limit) {
+        this.parameter = parameter;
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the parameter of the caller
+     */
+    @CheckForNull
+    public Object getParameter() {
+        return parameter;
+    }
+
+    /**
+     * @return the sort key of the last row seen, null for the first page
+     */
+    @CheckForNull
+    public Object getAfter() {
+        return after;
+    }
+
+    /**
+     * @return the number of rows to select, one more than the page size to know whether another page follows
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.databasespring.framework.database.session.page;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Encodes the sort key of the last row of a page as an opaque page token. Tokens come back from clients, so they only hold a type tag and the
+ * text of the value, never serialized objects.
+ */
+public final class KeysetToken {
+
+    private KeysetToken() {
+    }
+
+    /**
+     * @param value sort key value of the last row of a page
+     * @return the page token
+     * @throws IllegalArgumentException when the type of the value is not supported
+     */
+    public static String encode(@Nonnull Object value) {
+        String text = tag(value) + ":" + text(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token page token from {@link #encode(Object)}
+     * @return the sort key value
+     * @throws IllegalArgumentException when the token is not a valid page token
+     */
+    public static Object decode(@Nonnull String token) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        int separator = text.indexOf(':');
+        if (separator != 1) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        String value = text.substring(2);
+        try {
+            switch (text.charAt(0)) {
+                case 'L':
+                    return Long.valueOf(value);
+                case 'I':
+                    return Integer.valueOf(value);
+                case 'S':
+                    return value;
+                case 'B':
+                    return new BigDecimal(value);
+                case 'U':
+                    return UUID.fromString(value);
+                case 'T':
+                    return Timestamp.from(Instant.parse(value));
+                case 'q':
+                    return java.sql.Date.valueOf(value);
+                case 'D':
+                    return Date.from(Instant.parse(value));
+                case 'N':
+                    return Instant.parse(value);
+                case 'd':
+                    return LocalDate.parse(value);
+                case 't':
+                    return LocalDateTime.parse(value);
+                case 'o':
+                    return OffsetDateTime.parse(value);
+                default:
+                    throw new IllegalArgumentException("Invalid page token");
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    private static char tag(Object value) {
+        if (value instanceof Long) {
+            return 'L';
+        } else if (value instanceof Integer) {
+            return 'I';
+        } else if (value instanceof String) {
+            return 'S';
+        } else if (value instanceof BigDecimal) {
+            return 'B';
+        } else if (value instanceof UUID) {
+            return 'U';
+        } else if (value instanceof Timestamp) {
+            return 'T';
+        } else if (value instanceof java.sql.Date) {
+            return 'q';
+        } else if (value instanceof Date) {
+            return 'D';
+        } else if (value instanceof Instant) {
+            return 'N';
+        } else if (value instanceof LocalDate) {
+            return 'd';
+        } else if (value instanceof LocalDateTime) {
+            return 't';
+        } else if (value instanceof OffsetDateTime) {
+            return 'o';
+        }
+        throw new IllegalArgumentException("Unsupported sort key type " + value.getClass().getName());
+    }
+
+    private static String text(Object value) {
+        if (value instanceof Timestamp) {
+            // Keeps the nanoseconds
+            return ((Timestamp) value).toInstant().toString();
+        } else if (value instanceof java.sql.Date) {
+            return value.toString();
+        } else if (value instanceof Date) {
+            return ((Date) value).toInstant().toString();
+        }
+        return value.toString();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.databasespring.framework.collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class LongObjectMapTest {
+
+    @Test
+    void storesKeyZeroAside() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertFalse(map.containsKey(0L));
+
+        assertNull(map.put(0L, "zero"));
+        assertTrue(map.containsKey(0L));
+        assertEquals("zero", map.get(0L));
+        assertEquals(1, map.size());
+
+        assertEquals("zero", map.put(0L, "nil"));
+        assertEquals("nil", map.get(0L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsCollidingKeysApart() {
+        // Keys a multiple of the table size apart collide before mixing, the probing has to keep them apart either way
+        LongObjectMap<String> map = new LongObjectMap<>();
+        for (long key = 1; key <= 10; key++) {
+            map.put(key * 16, "v" + key);
+            map.put(-key, "n" + key);
+        }
+
+        for (long key = 1; key <= 10; key++) {
+            assertEquals("v" + key, map.get(key * 16));
+            assertEquals("n" + key, map.get(-key));
+        }
+        assertNull(map.get(17L));
+        assertFalse(map.containsKey(17L));
+        assertEquals(20, map.size());
+    }
+
+    @Test
+    void keepsEntriesWhenResizing() {
+        LongObjectMap<Long> map = new LongObjectMap<>(2);
+        Map<Long, Long> expected = new HashMap<>();
+        for (long key = -5000; key <= 5000; key += 3) {
+            map.put(key, key * 2);
+            expected.put(key, key * 2);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        Map<Long, Long> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    void overwritesExistingKey() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(42L, "first"));
+
+        assertEquals("first", map.put(42L, "second"));
+        assertEquals("second", map.get(42L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void countsAndClearsEntries() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertTrue(map.isEmpty());
+        map.put(0L, "zero");
+        map.put(1L, "one");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(Long.MAX_VALUE, "max");
+        assertEquals(4, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0L));
+        assertNull(map.get(Long.MAX_VALUE));
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.databasespring.framework.database.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+    private static final CachePolicy POLICY = new CachePolicy(1, TimeUnit.MINUTES, 100);
+
+    @Test
+    void cachesOnlyStatementsWithPolicy() throws DatabaseException {
+        QueryCache queryCache = new QueryCache().cache("orders", POLICY);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("1", get(queryCache, "orders.selectById", () -> String.valueOf(loads.incrementAndGet())));
+        assertEquals("1", get(queryCache, "orders.selectById", () -> String.valueOf(loads.incrementAndGet())));
+        assertEquals("2", get(queryCache, "customers.selectById", () -> String.valueOf(loads.incrementAndGet())));
+        assertEquals("3", get(queryCache, "customers.selectById", () -> String.valueOf(loads.incrementAndGet())));
+    }
+
+    @Test
+    void cachesNullResults() throws DatabaseException {
+        QueryCache queryCache = new QueryCache().cache("orders", POLICY);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(get(queryCache, "orders.selectById", () -> nothing(loads)));
+        assertNull(get(queryCache, "orders.selectById", () -> nothing(loads)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidatesDependentNamespacesOnWrite() throws DatabaseException {
+        QueryCache queryCache = new QueryCache().cache("reports", POLICY).invalidateOnWrite("orders", "reports");
+        AtomicInteger loads = new AtomicInteger();
+        get(queryCache, "reports.totals", () -> String.valueOf(loads.incrementAndGet()));
+
+        queryCache.invalidateAfterWrite("customers.insert");
+        assertEquals("1", get(queryCache, "reports.totals", () -> String.valueOf(loads.incrementAndGet())));
+
+        queryCache.invalidateAfterWrite("orders.insert");
+        assertEquals("2", get(queryCache, "reports.totals", () -> String.valueOf(loads.incrementAndGet())));
+    }
+
+    @Test
+    void doesNotKeepResultReadWhileWriting() throws Exception {
+        QueryCache queryCache = new QueryCache().cache("orders", POLICY);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(queryCache, "orders.selectById", () -> {
+                    loading.countDown();
+                    // The row is read before the write and returned after it
+                    await(written);
+                    return "stale";
+                });
+            } catch (DatabaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        queryCache.invalidateAfterWrite("orders.update");
+        written.countDown();
+
+        assertEquals("stale", read.get(5, TimeUnit.SECONDS));
+        assertEquals("fresh", get(queryCache, "orders.selectById", () -> "fresh"));
+    }
+
+    @Test
+    void loadsFromPrimaryAfterWrite() {
+        QueryCache queryCache = new QueryCache().cache("orders", POLICY).cache("customers", POLICY);
+        assertFalse(queryCache.isLoadedFromPrimary("orders.selectById"));
+
+        queryCache.invalidateAfterWrite("orders.insert");
+        assertTrue(queryCache.isLoadedFromPrimary("orders.selectById"));
+        assertFalse(queryCache.isLoadedFromPrimary("customers.selectById"));
+
+        queryCache.primaryAfterWrite(0, TimeUnit.SECONDS);
+        assertFalse(queryCache.isLoadedFromPrimary("orders.selectById"));
+    }
+
+    private static String get(QueryCache queryCache, String statement, ResultLoader<String> loader) throws DatabaseException {
+        return queryCache.get("one", String.class, statement, 42L, null, loader);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (! latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String nothing(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return null;
+    }
+
+}
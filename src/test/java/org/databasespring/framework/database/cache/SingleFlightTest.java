@@ -0,0 +1,114 @@
+package org.databasespring.framework.database.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    @Test
+    void sharesReadInFlight() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<Select> follower = new AtomicReference<>();
+
+        String result = execute(singleFlight, () -> {
+            loads.incrementAndGet();
+            follower.set(new Select(singleFlight, () -> "follower " + loads.incrementAndGet()));
+            follower.get().awaitWaiting();
+            return "leader";
+        });
+
+        assertEquals("leader", result);
+        assertSame(result, follower.get().result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void doesNotShareReadAcrossInvalidate() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicReference<String> afterWrite = new AtomicReference<>();
+
+        String result = execute(singleFlight, () -> {
+            singleFlight.invalidate();
+            // Joining this read would wait for it while it waits for the select, which then times out
+            afterWrite.set(new Select(singleFlight, () -> "after write").get());
+            return "before write";
+        });
+
+        assertEquals("before write", result);
+        assertEquals("after write", afterWrite.get());
+    }
+
+    @Test
+    void sharesFailure() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicReference<Select> follower = new AtomicReference<>();
+        DatabaseException failure = new DatabaseException("Unable to execute query");
+
+        assertSame(failure, assertThrows(DatabaseException.class, () -> execute(singleFlight, () -> {
+            follower.set(new Select(singleFlight, () -> "follower"));
+            follower.get().awaitWaiting();
+            throw failure;
+        })));
+
+        ExecutionException executionException = assertThrows(ExecutionException.class, () -> follower.get().result.get(5, TimeUnit.SECONDS));
+        assertSame(failure, executionException.getCause());
+    }
+
+    private static String execute(SingleFlight singleFlight, ResultLoader<String> loader) throws DatabaseException {
+        return singleFlight.execute("one", String.class, "orders.selectById", 42L, null, loader);
+    }
+
+    /**
+     * The same select on a thread of its own.
+     */
+    private static final class Select {
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final Thread thread;
+
+        private Select(SingleFlight singleFlight, ResultLoader<String> loader) {
+            thread = new Thread(() -> {
+                try {
+                    result.complete(execute(singleFlight, loader));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Wait until the select joined the read in flight, or completed on its own.
+         */
+        private void awaitWaiting() {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (! result.isDone() && thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+        }
+
+        private String get() {
+            try {
+                return result.get(5, TimeUnit.SECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.databasespring.framework.database.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseMapperIndexProcessorTest {
+
+    private static final String MAPPER_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+        + "<mapper namespace=\"app.ItemMapper\">\n    <select id=\"count\" resultType=\"int\">SELECT 1</select>\n</mapper>\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void indexesNestedMappersByBinaryName() throws IOException {
+        compile(null,
+            "app/Outer.java", "package app; public class Outer { public interface Inner extends " + DatabaseMapper.class.getName() + " {"
+                + " interface Deeper extends Inner {} } interface NoMapper {} }",
+            "app/TopMapper.java", "package app; public interface TopMapper extends " + DatabaseMapper.class.getName() + " { int count(); }",
+            "app/Item.java", "package app; public class Item {}");
+
+        assertEquals(Arrays.asList("app.Outer$Inner", "app.Outer$Inner$Deeper", "app.TopMapper"), read(IndexedDatabaseMapperRegistry.INDEX));
+        assertFalse(Files.exists(output().resolve(IndexedDatabaseMapperRegistry.XML_INDEX)));
+    }
+
+    @Test
+    void mergesWithThePreviousIndex() throws IOException {
+        Path resources = resources();
+        compile(resources,
+            "app/KeptMapper.java", "package app; public interface KeptMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); }",
+            "app/RemovedMapper.java", "package app; public interface RemovedMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); }",
+            "app/ChangedMapper.java", "package app; public interface ChangedMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); }");
+        assertEquals(Arrays.asList("app.ChangedMapper=", "app.ItemMapper=database/mybatis/mappers/Item.xml", "app.KeptMapper=", "app.RemovedMapper="),
+            read(IndexedDatabaseMapperRegistry.XML_INDEX));
+
+        // The incremental compilation only sees the changed sources, the class of the removed source is deleted
+        Files.delete(output().resolve("app/RemovedMapper.class"));
+        compile(resources,
+            "app/ChangedMapper.java", "package app; public interface ChangedMapper extends " + DatabaseMapper.class.getName() + " { int count(); }",
+            "app/ItemMapper.java", "package app; public interface ItemMapper extends " + DatabaseMapper.class.getName() + " { int count(); }");
+
+        assertEquals(Arrays.asList("app.ChangedMapper", "app.ItemMapper", "app.KeptMapper"), read(IndexedDatabaseMapperRegistry.INDEX));
+        assertEquals(Arrays.asList("app.ItemMapper=database/mybatis/mappers/Item.xml", "app.KeptMapper="),
+            read(IndexedDatabaseMapperRegistry.XML_INDEX));
+    }
+
+    @Test
+    void indexesTheMapperXmlByNamespace() throws IOException {
+        compile(resources(),
+            "app/ItemMapper.java", "package app; public interface ItemMapper extends " + DatabaseMapper.class.getName() + " { int count(); }",
+            "app/AnnotatedMapper.java", "package app; public interface AnnotatedMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); default int twice() { return 2 * count(); } }",
+            "app/PartialMapper.java", "package app; public interface PartialMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); int other(); }");
+
+        assertEquals(Arrays.asList("app.AnnotatedMapper=", "app.ItemMapper=database/mybatis/mappers/Item.xml"),
+            read(IndexedDatabaseMapperRegistry.XML_INDEX));
+    }
+
+    @Test
+    void coversTheMappersWithTheIndexedMapperXml() throws Exception {
+        compile(resources(),
+            "app/ItemMapper.java", "package app; public interface ItemMapper extends " + DatabaseMapper.class.getName() + " { int count(); }",
+            "app/AnnotatedMapper.java", "package app; public interface AnnotatedMapper extends " + DatabaseMapper.class.getName()
+                + " { @org.apache.ibatis.annotations.Select(\"SELECT 1\") int count(); }",
+            "app/NextToMapper.java", "package app; public interface NextToMapper extends " + DatabaseMapper.class.getName() + " { int count(); }",
+            "app/UncoveredMapper.java", "package app; public interface UncoveredMapper extends " + DatabaseMapper.class.getName()
+                + " { int count(); }");
+        Files.write(output().resolve("app/NextToMapper.xml"),
+            MAPPER_XML.replace("app.ItemMapper", "app.NextToMapper").getBytes(StandardCharsets.UTF_8));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {output().toUri().toURL()}, getClass().getClassLoader())) {
+            IndexedDatabaseMapperRegistry indexedDatabaseMapperRegistry = new IndexedDatabaseMapperRegistry(classLoader);
+            List<Class<? extends DatabaseMapper>> registry = indexedDatabaseMapperRegistry.getRegistry();
+            assertEquals(4, registry.size());
+
+            List<Class<? extends DatabaseMapper>> covered = registry.stream().filter(mapper -> ! mapper.getSimpleName().startsWith("Uncovered"))
+                .collect(Collectors.toList());
+            assertEquals(Collections.singletonList("database/mybatis/mappers/Item.xml"), indexedDatabaseMapperRegistry.getMapperXml(covered));
+            assertNull(indexedDatabaseMapperRegistry.getMapperXml(registry));
+        }
+    }
+
+    private Path resources() throws IOException {
+        Path resources = directory.resolve("resources");
+        Files.createDirectories(resources.resolve("database/mybatis/mappers"));
+        Files.write(resources.resolve("database/mybatis/mappers/Item.xml"), MAPPER_XML.getBytes(StandardCharsets.UTF_8));
+        Files.write(resources.resolve("database/mybatis/mybatis-config.xml"), ("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration/>\n").getBytes(StandardCharsets.UTF_8));
+        return resources;
+    }
+
+    private Path output() {
+        return directory.resolve("classes");
+    }
+
+    private List<String> read(String index) throws IOException {
+        Path file = output().resolve(index);
+        assertTrue(Files.exists(file), index);
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param sources the paths and contents of the sources
+     */
+    private void compile(Path resources, String... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "No compiler in this JVM");
+
+        Path sourceDirectory = directory.resolve("sources-" + System.nanoTime());
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < sources.length; i += 2) {
+            Path source = sourceDirectory.resolve(sources[i]);
+            Files.createDirectories(source.getParent());
+            Files.write(source, sources[i + 1].getBytes(StandardCharsets.UTF_8));
+            files.add(source.toFile());
+        }
+        Files.createDirectories(output());
+
+        List<String> options = new ArrayList<>(Arrays.asList("-d", output().toString(),
+            "-classpath", output() + File.pathSeparator + System.getProperty("java.class.path")));
+        if (resources != null) {
+            options.add("-A" + DatabaseMapperIndexProcessor.MAPPER_RESOURCES + "=" + resources);
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new DatabaseMapperIndexProcessor()));
+            Boolean success = task.call();
+            assertNotNull(success);
+            assertTrue(success, () -> diagnostics.getDiagnostics().stream().filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(Object::toString).collect(Collectors.joining("\n")));
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.databasespring.framework.database.session.copy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class CopyTextEncoderTest {
+
+    @Test
+    void escapesBackslashTabAndLineBreaks() throws IOException {
+        assertEquals("a\\\\b\\tc\\rd\\ne\n", encode(Function.identity(), "a\\b\tc\rd\ne"));
+    }
+
+    @Test
+    void encodesNullAsMarker() throws IOException {
+        assertEquals("\\N\n", encode(value -> null, "ignored"));
+    }
+
+    @Test
+    void doesNotConfuseTextWithNullMarker() throws IOException {
+        assertEquals("\\\\N\n", encode(Function.identity(), "\\N"));
+    }
+
+    @Test
+    void encodesByteaAsEscapedHex() throws IOException {
+        assertEquals("\\\\x00ab7f\n", encode(Function.identity(), new byte[] {0x00, (byte) 0xAB, 0x7F}));
+    }
+
+    @Test
+    void encodesBooleans() throws IOException {
+        assertEquals("t\n", encode(Function.identity(), Boolean.TRUE));
+        assertEquals("f\n", encode(Function.identity(), Boolean.FALSE));
+    }
+
+    @Test
+    void separatesColumnsAndRows() throws IOException {
+        CopyMapping<String[]> copyMapping = new CopyMapping<String[]>()
+            .column("first", row -> row[0])
+            .column("second", row -> row[1]);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long count = new CopyTextEncoder<>(copyMapping).encode(Arrays.asList(new String[] {"a", "b"}, new String[] {"c", null}).iterator(), outputStream);
+
+        assertEquals(2, count);
+        assertEquals("a\tb\nc\t\\N\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static <T> String encode(Function<? super T, ?> extractor, T row) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new CopyTextEncoder<>(new CopyMapping<T>().column("value", extractor)).encode(Collections.singletonList(row).iterator(), outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
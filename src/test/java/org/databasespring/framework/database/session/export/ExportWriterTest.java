@@ -0,0 +1,92 @@
+package org.databasespring.framework.database.session.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class ExportWriterTest {
+
+    @Test
+    void quotesCsvValuesWhenNeeded() throws IOException {
+        assertEquals("id,\"na,me\"\nplain,\"a,b\"\n\"say \"\"hi\"\"\",\"two\nlines\"\n\"cr\r\",\n", write(ExportFormat.CSV, new String[] {"id", "na,me"},
+            new String[] {"plain", "a,b"}, new String[] {"say \"hi\"", "two\nlines"}, new String[] {"cr\r", null}));
+    }
+
+    @Test
+    void escapesJsonStrings() throws IOException {
+        assertEquals("{\"a\\\"b\":\"q\\\"b\\\\s\\n\\r\\t\\u0001\\u001f\",\"c\":null}\n", write(ExportFormat.NDJSON, new String[] {"a\"b", "c"},
+            new String[] {"q\"b\\s\n\r\t\u0001\u001f", null}));
+    }
+
+    @Test
+    void writesJsonLiteralsWithoutQuotes() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ExportWriter exportWriter = new ExportWriter(ExportFormat.NDJSON, Channels.newChannel(outputStream))) {
+            exportWriter.header(new String[] {"flag", "count"});
+            exportWriter.beginRow();
+            exportWriter.value("true", true);
+            exportWriter.value("42", true);
+            exportWriter.endRow();
+        }
+        assertEquals("{\"flag\":true,\"count\":42}\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesNanAndInfinityAsJsonText() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ExportWriter exportWriter = new ExportWriter(ExportFormat.NDJSON, Channels.newChannel(outputStream))) {
+            exportWriter.header(new String[] {"a", "b", "c", "d", "e", "f"});
+            exportWriter.beginRow();
+            exportWriter.number("1.5");
+            exportWriter.number("-2E+10");
+            exportWriter.number("NaN");
+            exportWriter.number("Infinity");
+            exportWriter.number("-Infinity");
+            exportWriter.number(null);
+            exportWriter.endRow();
+        }
+        assertEquals("{\"a\":1.5,\"b\":-2E+10,\"c\":\"NaN\",\"d\":\"Infinity\",\"e\":\"-Infinity\",\"f\":null}\n",
+            new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesEmptyJsonRow() throws IOException {
+        assertEquals("{}\n", write(ExportFormat.NDJSON, new String[0], new String[0]));
+    }
+
+    @Test
+    void keepsSurrogatePairsSplitAcrossBuffers() throws IOException {
+        // Both offsets put the high surrogate of some pair in the last slot of the character buffer
+        for (int offset = 0; offset < 2; offset++) {
+            StringBuilder value = new StringBuilder();
+            for (int i = 0; i < offset; i++) {
+                value.append('a');
+            }
+            for (int i = 0; i < 10000; i++) {
+                value.append("\ud83d\ude00");
+            }
+            assertEquals("c\n" + value + "\n", write(ExportFormat.CSV, new String[] {"c"}, new String[] {value.toString()}));
+        }
+    }
+
+    private static String write(ExportFormat exportFormat, String[] columns, String[]... rows) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ExportWriter exportWriter = new ExportWriter(exportFormat, Channels.newChannel(outputStream))) {
+            exportWriter.header(columns);
+            for (String[] row : rows) {
+                exportWriter.beginRow();
+                for (String value : row) {
+                    exportWriter.value(value, false);
+                }
+                exportWriter.endRow();
+            }
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
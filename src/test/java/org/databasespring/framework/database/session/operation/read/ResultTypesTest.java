@@ -0,0 +1,78 @@
+package org.databasespring.framework.database.session.operation.read;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.databasespring.framework.database.exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+
+class ResultTypesTest {
+
+    private final Configuration configuration = new Configuration();
+
+    @Test
+    void matchesResultMapTypeWithoutInspectingRows() {
+        select("rows.integers", Integer.class);
+
+        // A match is decided by the result map, the row is not looked at anymore
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.integers", Integer.class, "not inspected"));
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.integers", Number.class, 1));
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.integers", Object.class, 1));
+    }
+
+    @Test
+    void matchesPrimitiveTypes() {
+        select("rows.integers", Integer.class);
+        select("rows.ints", int.class);
+
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.integers", int.class, 1));
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.ints", Integer.class, 1));
+        assertDoesNotThrow(() -> ResultTypes.check(configuration, "rows.ints", int.class, 1));
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.ints", long.class, 1L));
+    }
+
+    @Test
+    void rejectsUnrelatedType() {
+        select("rows.integers", Integer.class);
+
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.integers", String.class, "1"));
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.integers", String.class, 1));
+    }
+
+    @Test
+    void inspectsRowsOfSuperTypeResultMap() throws DatabaseException {
+        select("rows.numbers", Number.class);
+
+        ResultTypes.check(configuration, "rows.numbers", Integer.class, 1);
+        ResultTypes.check(configuration, "rows.numbers", int.class, 1);
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.numbers", Integer.class, 1L));
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.numbers", int.class, 1.5d));
+    }
+
+    @Test
+    void inspectsRowsOfMultipleResultSets() throws DatabaseException {
+        select("rows.mixed", String.class, Integer.class);
+
+        ResultTypes.check(configuration, "rows.mixed", Integer.class, 1);
+        assertThrows(DatabaseException.class, () -> ResultTypes.check(configuration, "rows.mixed", Integer.class, "1"));
+    }
+
+    private void select(String id, Class<?>... types) {
+        List<ResultMap> resultMaps = new ArrayList<>();
+        for (Class<?> type : types) {
+            resultMaps.add(new ResultMap.Builder(configuration, id + "-" + type.getName(), type, new ArrayList<>()).build());
+        }
+        configuration.addMappedStatement(new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "select 1"), SqlCommandType.SELECT)
+            .resultMaps(resultMaps)
+            .build());
+    }
+
+}
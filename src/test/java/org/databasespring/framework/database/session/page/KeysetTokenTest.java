@@ -0,0 +1,75 @@
+package org.databasespring.framework.database.session.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class KeysetTokenTest {
+
+    @Test
+    void roundTripsNumbers() {
+        assertRoundTrip(Long.MIN_VALUE);
+        assertRoundTrip(Integer.MAX_VALUE);
+        assertRoundTrip(new BigDecimal("-12345678901234567890.0100"));
+    }
+
+    @Test
+    void roundTripsText() {
+        assertRoundTrip("");
+        assertRoundTrip("a:b:c");
+        assertRoundTrip("caf\u00e9 \ud83d\ude00");
+        assertRoundTrip(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+    }
+
+    @Test
+    void roundTripsDatesAndTimes() {
+        Timestamp timestamp = Timestamp.valueOf("2021-06-01 12:34:56.123456789");
+        assertRoundTrip(timestamp);
+        assertRoundTrip(java.sql.Date.valueOf("2021-06-01"));
+        assertRoundTrip(new Date(1622550896123L));
+        assertRoundTrip(Instant.ofEpochSecond(1622550896L, 123456789));
+        assertRoundTrip(LocalDate.of(2021, 6, 1));
+        assertRoundTrip(LocalDateTime.of(2021, 6, 1, 12, 34, 56, 123456789));
+        assertRoundTrip(OffsetDateTime.of(2021, 6, 1, 12, 34, 56, 0, ZoneOffset.ofHours(2)));
+    }
+
+    @Test
+    void rejectsUnsupportedType() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.encode(1.5d));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "!!not-base64", "TDo", "WDoxMjM", "TDphYmM", "TDEyMw"})
+    void rejectsInvalidToken(String token) {
+        assertThrows(IllegalArgumentException.class, () -> KeysetToken.decode(token));
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        String token = KeysetToken.encode("\u00ff\u00fe\u00fd???>>>");
+        assertEquals(token, token.replaceAll("[^A-Za-z0-9_-]", ""));
+        assertEquals("S:\u00ff\u00fe\u00fd???>>>", new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+    }
+
+    private static void assertRoundTrip(Object value) {
+        Object decoded = KeysetToken.decode(KeysetToken.encode(value));
+        assertEquals(value.getClass(), decoded.getClass());
+        assertEquals(value, decoded);
+    }
+
+}